@@ -0,0 +1,660 @@
+package com.github.zw201913.simplehttp.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译期为@SimpleHttpService接口生成实现类，生成的类直接绑定参数，避免动态代理的反射调用和Object[]参数
+ *
+ * @author zouwei
+ */
+@SupportedAnnotationTypes(SimpleHttpServiceProcessor.SIMPLE_HTTP_SERVICE)
+public class SimpleHttpServiceProcessor extends AbstractProcessor {
+
+    static final String SIMPLE_HTTP_SERVICE =
+            "com.github.zw201913.simplehttp.annotation.SimpleHttpService";
+
+    /** 需要和HttpProxyFactory.GENERATED_SUFFIX保持一致 */
+    private static final String GENERATED_SUFFIX = "$$Impl";
+
+    private static final String ANNOTATION_PACKAGE = "com.github.zw201913.simplehttp.annotation.";
+    private static final String HEADER = ANNOTATION_PACKAGE + "Header";
+    private static final String FIELD = ANNOTATION_PACKAGE + "Field";
+    private static final String URL = ANNOTATION_PACKAGE + "Url";
+    private static final String SHARD_KEY = ANNOTATION_PACKAGE + "ShardKey";
+    private static final String CIRCUIT_BREAKER = ANNOTATION_PACKAGE + "CircuitBreaker";
+
+    private static final String PROXY_PACKAGE = "com.github.zw201913.simplehttp.core.proxy.";
+    private static final String HTTP_PROXY_FACTORY = PROXY_PACKAGE + "HttpProxyFactory";
+    private static final String HTTP_METHOD = PROXY_PACKAGE + "HttpMethod";
+    private static final String HTTP_INVOCATION = PROXY_PACKAGE + "HttpInvocation";
+
+    /** 和ClassUtils.isSimpleType保持一致 */
+    private static final Set<String> SIMPLE_TYPES =
+            new HashSet<>(
+                    Arrays.asList(
+                            "java.lang.Integer",
+                            "java.lang.String",
+                            "java.lang.Long",
+                            "java.lang.Byte",
+                            "java.lang.Short",
+                            "java.lang.Character",
+                            "java.lang.Double",
+                            "java.lang.Float"));
+
+    /** 请求头的值和ParameterBinders.header一样使用CastUtils转换 */
+    private static final String CAST_UTILS = "com.github.zw201913.simplehttp.support.CastUtils";
+
+    private static final String CALLBACK = "okhttp3.Callback";
+    private static final String WEB_SOCKET_LISTENER = "okhttp3.WebSocketListener";
+    private static final String PROGRESS_LISTENER =
+            "com.github.zw201913.simplehttp.core.http.ProgressListener";
+    private static final String RESPONSE_HANDLER =
+            "com.github.zw201913.simplehttp.core.handler.ResponseHandler";
+
+    private Filer filer;
+    private Messager messager;
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.filer = processingEnv.getFiler();
+        this.messager = processingEnv.getMessager();
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = elements.getTypeElement(SIMPLE_HTTP_SERVICE);
+        if (annotation == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                continue;
+            }
+            TypeElement httpInterface = (TypeElement) element;
+            if (!httpInterface.getTypeParameters().isEmpty()) {
+                messager.printMessage(
+                        Diagnostic.Kind.NOTE,
+                        "泛型接口不生成实现类，运行时使用动态代理",
+                        httpInterface);
+                continue;
+            }
+            if (isPrivate(httpInterface)) {
+                messager.printMessage(
+                        Diagnostic.Kind.ERROR, "private的接口无法生成实现类，请去掉private修饰符", httpInterface);
+                continue;
+            }
+            try {
+                generate(httpInterface);
+            } catch (IOException e) {
+                messager.printMessage(
+                        Diagnostic.Kind.ERROR, "生成实现类失败：" + e.getMessage(), httpInterface);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 接口本身或者外部类是private时，同一个包中生成的类无法实现这个接口
+     *
+     * @param httpInterface
+     * @return
+     */
+    private static boolean isPrivate(TypeElement httpInterface) {
+        for (Element element = httpInterface;
+                element != null && element.getKind() != ElementKind.PACKAGE;
+                element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 生成实现类
+     *
+     * @param httpInterface
+     * @throws IOException
+     */
+    private void generate(TypeElement httpInterface) throws IOException {
+        PackageElement packageElement = elements.getPackageOf(httpInterface);
+        String packageName = packageElement.getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(httpInterface).toString();
+        String simpleName =
+                (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                        + GENERATED_SUFFIX;
+        String interfaceName = httpInterface.getQualifiedName().toString();
+        DeclaredType interfaceType = (DeclaredType) httpInterface.asType();
+
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (ExecutableElement method :
+                ElementFilter.methodsIn(elements.getAllMembers(httpInterface))) {
+            Element owner = method.getEnclosingElement();
+            if (owner.getKind() == ElementKind.INTERFACE
+                    && method.getModifiers().contains(Modifier.ABSTRACT)) {
+                methods.add(method);
+            }
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/** 由SimpleHttpServiceProcessor生成，请勿修改 */\n");
+        source.append("public final class ")
+                .append(simpleName)
+                .append(" implements ")
+                .append(interfaceName)
+                .append(" {\n\n");
+        for (int i = 0; i < methods.size(); i++) {
+            source.append("    private final ")
+                    .append(HTTP_METHOD)
+                    .append(" m")
+                    .append(i)
+                    .append(";\n");
+        }
+        source.append("\n    public ")
+                .append(simpleName)
+                .append("(")
+                .append(HTTP_PROXY_FACTORY)
+                .append("<")
+                .append(interfaceName)
+                .append("> factory) {\n");
+        for (int i = 0; i < methods.size(); i++) {
+            ExecutableElement method = methods.get(i);
+            source.append("        this.m")
+                    .append(i)
+                    .append(" = factory.httpMethod(\"")
+                    .append(method.getSimpleName())
+                    .append("\"");
+            for (VariableElement parameter : method.getParameters()) {
+                source.append(", ").append(types.erasure(parameter.asType())).append(".class");
+            }
+            source.append(");\n");
+        }
+        source.append("    }\n");
+        boolean rethrow = false;
+        for (int i = 0; i < methods.size(); i++) {
+            ExecutableElement method = methods.get(i);
+            ExecutableType methodType = (ExecutableType) types.asMemberOf(interfaceType, method);
+            rethrow |= generateMethod(source, "m" + i, method, methodType);
+        }
+        if (rethrow) {
+            // 泛型声明的异常无法直接捕获，擦除后原样抛出
+            source.append("\n    @SuppressWarnings(\"unchecked\")\n");
+            source.append("    private static <X extends Throwable> RuntimeException rethrow(")
+                    .append("Throwable e) throws X {\n");
+            source.append("        throw (X) e;\n");
+            source.append("    }\n");
+        }
+        source.append("}\n");
+
+        JavaFileObject file =
+                filer.createSourceFile(
+                        packageName.isEmpty() ? simpleName : packageName + "." + simpleName,
+                        httpInterface);
+        try (Writer writer = file.openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    /**
+     * 生成方法实现
+     *
+     * @param source
+     * @param field
+     * @param method
+     * @param methodType
+     * @return 是否使用了rethrow方法
+     */
+    private boolean generateMethod(
+            StringBuilder source,
+            String field,
+            ExecutableElement method,
+            ExecutableType methodType) {
+        source.append("\n    @Override\n    public ");
+        List<? extends TypeParameterElement> typeParameters = method.getTypeParameters();
+        if (!typeParameters.isEmpty()) {
+            source.append("<");
+            for (int i = 0; i < typeParameters.size(); i++) {
+                TypeParameterElement typeParameter = typeParameters.get(i);
+                if (i > 0) {
+                    source.append(", ");
+                }
+                source.append(typeParameter.getSimpleName());
+                List<? extends TypeMirror> bounds = typeParameter.getBounds();
+                if (!bounds.isEmpty() && !isObject(bounds.get(0))) {
+                    source.append(" extends ");
+                    for (int j = 0; j < bounds.size(); j++) {
+                        source.append(j > 0 ? " & " : "").append(bounds.get(j));
+                    }
+                }
+            }
+            source.append("> ");
+        }
+        TypeMirror returnType = methodType.getReturnType();
+        source.append(returnType).append(" ").append(method.getSimpleName()).append("(");
+        List<? extends VariableElement> parameters = method.getParameters();
+        List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                source.append(", ");
+            }
+            TypeMirror type = parameterTypes.get(i);
+            if (method.isVarArgs() && i == parameters.size() - 1) {
+                source.append(((javax.lang.model.type.ArrayType) type).getComponentType())
+                        .append("...");
+            } else {
+                source.append(type);
+            }
+            source.append(" p").append(i);
+        }
+        source.append(")");
+        List<? extends TypeMirror> thrownTypes = methodType.getThrownTypes();
+        if (!thrownTypes.isEmpty()) {
+            source.append(" throws ");
+            for (int i = 0; i < thrownTypes.size(); i++) {
+                source.append(i > 0 ? ", " : "").append(thrownTypes.get(i));
+            }
+        }
+        source.append(" {\n");
+        source.append("        ")
+                .append(HTTP_INVOCATION)
+                .append(" invocation = new ")
+                .append(HTTP_INVOCATION)
+                .append("();\n");
+        for (int i = 0; i < parameters.size(); i++) {
+            bindParameter(source, parameters.get(i), types.erasure(parameterTypes.get(i)), "p" + i);
+        }
+        AnnotationMirror circuitBreaker = annotation(method, CIRCUIT_BREAKER);
+        if (circuitBreaker != null && hasElement(circuitBreaker, "fallback")) {
+            // 熔断时需要用原始参数调用fallback
+            source.append("        invocation.setArguments(new Object[] {");
+            for (int i = 0; i < parameters.size(); i++) {
+                source.append(i > 0 ? ", " : "").append("p").append(i);
+            }
+            source.append("});\n");
+        }
+        source.append("        try {\n");
+        if (returnType.getKind() == TypeKind.VOID) {
+            source.append("            ").append(field).append(".execute(invocation);\n");
+        } else {
+            source.append("            return (")
+                    .append(boxedName(returnType))
+                    .append(") ")
+                    .append(field)
+                    .append(".execute(invocation);\n");
+        }
+        source.append("        } catch (RuntimeException | Error e) {\n");
+        source.append("            throw e;\n");
+        boolean rethrow = false;
+        boolean catchAll = false;
+        for (TypeMirror catchType : checkedTypes(thrownTypes)) {
+            source.append("        } catch (").append(catchType).append(" e) {\n");
+            if (isDeclared(catchType, thrownTypes)) {
+                source.append("            throw e;\n");
+            } else {
+                source.append("            throw rethrow(e);\n");
+                rethrow = true;
+            }
+            catchAll |= isThrowable(catchType);
+        }
+        if (!catchAll) {
+            source.append("        } catch (Throwable e) {\n");
+            source.append(
+                    "            throw new java.lang.reflect.UndeclaredThrowableException(e);\n");
+        }
+        source.append("        }\n");
+        source.append("    }\n");
+        return rethrow;
+    }
+
+    /**
+     * 生成参数绑定代码，规则和运行时的ParameterBinders保持一致
+     *
+     * @param source
+     * @param parameter
+     * @param type
+     * @param name
+     */
+    private void bindParameter(
+            StringBuilder source, VariableElement parameter, TypeMirror type, String name) {
+        String typeName = type.toString();
+        String statement;
+        if (CALLBACK.equals(typeName)) {
+            statement = "invocation.setCallback(" + name + ");";
+        } else if (PROGRESS_LISTENER.equals(typeName)) {
+            statement = "invocation.setProgressListener(" + name + ");";
+        } else if (RESPONSE_HANDLER.equals(typeName)) {
+            statement = "invocation.setResponseHandler(" + name + ");";
+        } else if (WEB_SOCKET_LISTENER.equals(typeName)) {
+            statement = "invocation.setWebSocketListener(" + name + ");";
+        } else {
+            AnnotationMirror header = annotation(parameter, HEADER);
+            AnnotationMirror field = annotation(parameter, FIELD);
+            AnnotationMirror url = annotation(parameter, URL);
+            StringBuilder statements = new StringBuilder();
+            boolean shardOnly = false;
+            if (annotation(parameter, SHARD_KEY) != null) {
+                statements
+                        .append("invocation.setShardKey(String.valueOf(")
+                        .append(name)
+                        .append("));");
+                if (header == null && field == null && url == null && isSimpleType(type)) {
+                    // 没有其他注解的简单类型用参数名作为请求参数的key
+                    String key = parameter.getSimpleName().toString();
+                    statements.append(fieldStatement(type, key, name));
+                    shardOnly = true;
+                }
+            }
+            if (header != null) {
+                statements.append(headerStatement(type, annotationValue(header), name));
+            }
+            if (!shardOnly && (field != null || (header == null && url == null))) {
+                String key = field == null ? "" : annotationValue(field);
+                statements.append(fieldStatement(type, key, name));
+            }
+            if (url != null) {
+                if (!"java.lang.String".equals(typeName)) {
+                    messager.printMessage(
+                            Diagnostic.Kind.ERROR, "@Url指定的类型必须是String类型", parameter);
+                }
+                statements.append("invocation.setUrl(").append(name).append(");");
+            }
+            statement = statements.toString();
+        }
+        if (statement.isEmpty()) {
+            return;
+        }
+        if (type.getKind().isPrimitive()) {
+            source.append("        ")
+                    .append(statement.replace(";invocation", ";\n        invocation"))
+                    .append("\n");
+        } else {
+            source.append("        if (")
+                    .append(name)
+                    .append(" != null) {\n            ")
+                    .append(statement.replace(";invocation", ";\n            invocation"))
+                    .append("\n        }\n");
+        }
+    }
+
+    /**
+     * 请求头绑定代码
+     *
+     * @param type
+     * @param key
+     * @param name
+     * @return
+     */
+    private String headerStatement(TypeMirror type, String key, String name) {
+        if (!key.trim().isEmpty()) {
+            return "invocation.header("
+                    + literal(key)
+                    + ", "
+                    + CAST_UTILS
+                    + ".castString("
+                    + name
+                    + "));";
+        }
+        if (isAssignable(type, "java.util.Map")) {
+            return "invocation.headers(" + name + ");";
+        }
+        if (isAssignable(type, "java.util.Collection")) {
+            return "";
+        }
+        return "invocation.bean(" + name + ", false);";
+    }
+
+    /**
+     * 请求参数绑定代码
+     *
+     * @param type
+     * @param key
+     * @param name
+     * @return
+     */
+    private String fieldStatement(TypeMirror type, String key, String name) {
+        String typeName = type.toString();
+        if (!key.trim().isEmpty()) {
+            if ("java.io.File".equals(typeName)) {
+                return "invocation.file(" + literal(key) + ", new java.io.File[] {" + name + "});";
+            }
+            if ("java.io.File[]".equals(typeName)) {
+                return "invocation.file(" + literal(key) + ", " + name + ");";
+            }
+            TypeMirror file = elements.getTypeElement("java.io.File").asType();
+            if (types.isAssignable(file, type)
+                    || types.isAssignable(types.getArrayType(file), type)) {
+                return "invocation.field(" + literal(key) + ", " + name + ");";
+            }
+            return "invocation.param(" + literal(key) + ", " + name + ");";
+        }
+        if (isAssignable(type, "java.util.Map")) {
+            return "invocation.fields(" + name + ");";
+        }
+        if (isAssignable(type, "java.util.Collection")) {
+            return "";
+        }
+        return "invocation.bean(" + name + ", true);";
+    }
+
+    /**
+     * 需要单独捕获再抛出的受检异常，泛型声明的异常使用擦除后的类型，已经被其他异常覆盖的不需要重复捕获
+     *
+     * @param thrownTypes
+     * @return
+     */
+    private List<TypeMirror> checkedTypes(List<? extends TypeMirror> thrownTypes) {
+        List<TypeMirror> erasedTypes = new ArrayList<>();
+        for (TypeMirror thrownType : thrownTypes) {
+            TypeMirror erased = types.erasure(thrownType);
+            if (isAssignable(erased, "java.lang.RuntimeException")
+                    || isAssignable(erased, "java.lang.Error")) {
+                continue;
+            }
+            boolean duplicated = false;
+            for (TypeMirror other : erasedTypes) {
+                if (types.isSameType(other, erased)) {
+                    duplicated = true;
+                    break;
+                }
+            }
+            if (!duplicated) {
+                erasedTypes.add(erased);
+            }
+        }
+        List<TypeMirror> checkedTypes = new ArrayList<>();
+        for (TypeMirror erased : erasedTypes) {
+            boolean covered = false;
+            for (TypeMirror other : erasedTypes) {
+                if (other != erased && types.isSubtype(erased, other)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                checkedTypes.add(erased);
+            }
+        }
+        return checkedTypes;
+    }
+
+    /**
+     * 方法上是否直接声明了这个异常，只有泛型声明时不能直接抛出捕获到的异常
+     *
+     * @param catchType
+     * @param thrownTypes
+     * @return
+     */
+    private boolean isDeclared(TypeMirror catchType, List<? extends TypeMirror> thrownTypes) {
+        for (TypeMirror thrownType : thrownTypes) {
+            if (thrownType.getKind() != TypeKind.TYPEVAR
+                    && types.isSameType(thrownType, catchType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isThrowable(TypeMirror type) {
+        return "java.lang.Throwable".equals(type.toString());
+    }
+
+    /**
+     * 是否是简单类型，和运行时的ClassUtils.isSimpleType保持一致，另外包括基本类型
+     *
+     * @param type
+     * @return
+     */
+    private boolean isSimpleType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        }
+        TypeMirror component =
+                type.getKind() == TypeKind.ARRAY ? ((ArrayType) type).getComponentType() : type;
+        return SIMPLE_TYPES.contains(component.toString());
+    }
+
+    private boolean isAssignable(TypeMirror type, String className) {
+        TypeElement element = elements.getTypeElement(className);
+        return element != null && types.isAssignable(type, types.erasure(element.asType()));
+    }
+
+    private boolean isObject(TypeMirror type) {
+        return "java.lang.Object".equals(type.toString());
+    }
+
+    /**
+     * 获取参数上的注解
+     *
+     * @param element
+     * @param annotationName
+     * @return
+     */
+    private static AnnotationMirror annotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取注解的value值
+     *
+     * @param mirror
+     * @return
+     */
+    private static String annotationValue(AnnotationMirror mirror) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return "";
+    }
+
+    /**
+     * 注解上是否显式设置了某个属性
+     *
+     * @param mirror
+     * @param name
+     * @return
+     */
+    private static boolean hasElement(AnnotationMirror mirror, String name) {
+        for (ExecutableElement element : mirror.getElementValues().keySet()) {
+            if (element.getSimpleName().contentEquals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 基本类型返回值需要转成包装类型
+     *
+     * @param type
+     * @return
+     */
+    private String boxedName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass((javax.lang.model.type.PrimitiveType) type)
+                    .getQualifiedName()
+                    .toString();
+        }
+        return type.toString();
+    }
+
+    /**
+     * 生成字符串字面量
+     *
+     * @param value
+     * @return
+     */
+    private static String literal(String value) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.zw201913.simplehttp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 舱壁隔离：限制同时执行的请求数量，避免一个慢接口占满OkHttp共享的线程和连接
+ *
+ * <p>用在接口上时接口的所有方法共享一个隔舱，方法上的@Bulkhead优先并且单独使用一个隔舱；收到响应头时归还许可
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Bulkhead {
+
+    /**
+     * 最多同时执行的请求数量
+     *
+     * @return
+     */
+    int value();
+
+    /**
+     * 最多等待的请求数量，超过时直接拒绝，0表示不等待
+     *
+     * @return
+     */
+    int maxQueue() default 0;
+
+    /**
+     * 最多等待的毫秒数，超时后拒绝
+     *
+     * @return
+     */
+    long maxWait() default 1000;
+}
@@ -0,0 +1,68 @@
+package com.github.zw201913.simplehttp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在内存中缓存@Get、@Head方法解析好的返回值，命中缓存时不会发送请求也不需要解析响应
+ *
+ * <p>缓存的key由请求方式、url（包含参数）和headers指定的请求头组成，缓存的返回值是共享的，不要修改
+ *
+ * <p>设置refreshAfter、staleWhileRevalidate后，快过期或者已经过期的缓存被读取时会在后台刷新，调用者直接拿到旧的值
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cached {
+
+    /**
+     * 缓存有效时间
+     *
+     * @return
+     */
+    long ttl() default 60;
+
+    /**
+     * 写入多久之后被读取时提前在后台刷新，0表示不提前刷新，必须小于ttl
+     *
+     * @return
+     */
+    long refreshAfter() default 0;
+
+    /**
+     * 过期之后还可以继续使用旧值的时间，这段时间内被读取时返回旧值并在后台刷新，0表示过期后直接重新请求
+     *
+     * @return
+     */
+    long staleWhileRevalidate() default 0;
+
+    /**
+     * 同时在后台刷新的最大数量，超过时放弃这次刷新
+     *
+     * @return
+     */
+    int maxRefreshes() default 4;
+
+    /**
+     * 时间的单位
+     *
+     * @return
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 缓存的最大字节数，按照响应体的大小计算
+     *
+     * @return
+     */
+    long maxBytes() default 16 * 1024 * 1024;
+
+    /**
+     * 参与计算缓存key的请求头
+     *
+     * @return
+     */
+    String[] headers() default {};
+}
@@ -0,0 +1,79 @@
+package com.github.zw201913.simplehttp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 熔断：失败率或者慢调用比例超过阈值时打开熔断器，打开期间直接失败或者调用fallback，等待一段时间后放行少量请求试探服务是否恢复
+ *
+ * <p>默认按照请求的主机和端口熔断，使用同一个OkHttpClient工厂类并且策略相同的方法共享同一个主机的熔断器，策略不同的方法各自使用自己的熔断器
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CircuitBreaker {
+
+    /**
+     * 失败率阈值（百分比），请求异常和5xx响应都算失败
+     *
+     * @return
+     */
+    float failureRateThreshold() default 50;
+
+    /**
+     * 慢调用比例阈值（百分比），100表示只有全部请求都是慢调用时才熔断
+     *
+     * @return
+     */
+    float slowCallRateThreshold() default 100;
+
+    /**
+     * 收到响应头的耗时超过这个毫秒数时算作慢调用
+     *
+     * @return
+     */
+    long slowCallDuration() default 5000;
+
+    /**
+     * 滑动窗口记录最近多少次请求的结果
+     *
+     * @return
+     */
+    int windowSize() default 100;
+
+    /**
+     * 窗口中至少有多少次请求才计算失败率
+     *
+     * @return
+     */
+    int minimumCalls() default 20;
+
+    /**
+     * 熔断器打开后等待多少毫秒进入半开状态
+     *
+     * @return
+     */
+    long openDuration() default 30000;
+
+    /**
+     * 半开状态放行多少次试探请求
+     *
+     * @return
+     */
+    int halfOpenCalls() default 5;
+
+    /**
+     * 是否按照方法熔断，默认按照主机熔断
+     *
+     * @return
+     */
+    boolean perMethod() default false;
+
+    /**
+     * 熔断器打开时调用的实现类，必须实现方法所在的接口并且有无参构造方法，默认直接失败
+     *
+     * @return
+     */
+    Class<?> fallback() default void.class;
+}
@@ -0,0 +1,23 @@
+package com.github.zw201913.simplehttp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 一组等价的服务地址，每次请求按照负载选择其中一个
+ *
+ * <p>使用后@Get、@Post这类注解的url写成相对路径，例如"/user"，拼接在选中的地址后面；用在接口上时接口的所有方法共享，方法上的@Endpoints优先
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Endpoints {
+
+    /**
+     * 服务地址，例如"http://10.0.0.1:8080/api"
+     *
+     * @return
+     */
+    String[] value();
+}
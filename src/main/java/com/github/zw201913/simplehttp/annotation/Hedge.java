@@ -0,0 +1,44 @@
+package com.github.zw201913.simplehttp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 对冲请求：第一个请求超过一定时间还没有响应时再发送一个相同的请求，使用先返回的响应，另一个请求会被取消
+ *
+ * <p>默认只能用于幂等的请求（GET、HEAD），对冲请求的数量受到budget限制
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Hedge {
+
+    /**
+     * 发送对冲请求前等待的毫秒数，设置了percentile时作为收集到足够样本之前的默认值
+     *
+     * @return
+     */
+    long delay() default 50;
+
+    /**
+     * 按照最近请求耗时的百分位决定等待时间，例如95表示p95，0表示使用固定的delay
+     *
+     * @return
+     */
+    double percentile() default 0;
+
+    /**
+     * 对冲请求数量占请求数量的比例
+     *
+     * @return
+     */
+    double budget() default 0.1;
+
+    /**
+     * POST、PATCH这类不幂等的请求是否也发送对冲请求，只有确认接口幂等时才能设置
+     *
+     * @return
+     */
+    boolean nonIdempotent() default false;
+}
@@ -0,0 +1,61 @@
+package com.github.zw201913.simplehttp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 限制发送请求的速率，允许一定的突发
+ *
+ * <p>默认按照请求的主机和端口限流，使用同一个OkHttpClient工厂类并且策略相同的方法共享同一个主机的限流器，策略不同的方法各自使用自己的限流器；重试的请求同样需要获取许可
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RateLimit {
+
+    /**
+     * 每秒允许的请求数量
+     *
+     * @return
+     */
+    double value();
+
+    /**
+     * 空闲之后允许连续发送的请求数量
+     *
+     * @return
+     */
+    int burst() default 1;
+
+    /**
+     * 超过速率时的处理方式
+     *
+     * @return
+     */
+    Mode mode() default Mode.BLOCK;
+
+    /**
+     * QUEUE模式最多等待的毫秒数，预计等待时间超过这个值时直接失败
+     *
+     * @return
+     */
+    long timeout() default 1000;
+
+    /**
+     * 是否按照方法限流，默认按照主机限流
+     *
+     * @return
+     */
+    boolean perMethod() default false;
+
+    /** 超过速率时的处理方式 */
+    enum Mode {
+        /** 一直等待到可以发送 */
+        BLOCK,
+        /** 直接失败 */
+        FAIL_FAST,
+        /** 最多等待timeout毫秒 */
+        QUEUE
+    }
+}
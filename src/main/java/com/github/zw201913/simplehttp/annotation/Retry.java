@@ -0,0 +1,73 @@
+package com.github.zw201913.simplehttp.annotation;
+
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 请求失败时重试，等待时间按指数增长并加上随机抖动
+ *
+ * <p>默认只重试幂等的请求（GET、HEAD、PUT、DELETE、OPTIONS），重试还会受到OkHttpClient工厂类的重试预算限制
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Retry {
+
+    /**
+     * 最多请求几次（包含第一次），1表示不重试
+     *
+     * @return
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * 第一次重试前等待的毫秒数
+     *
+     * @return
+     */
+    long initialBackoff() default 100;
+
+    /**
+     * 最长等待的毫秒数
+     *
+     * @return
+     */
+    long maxBackoff() default 2000;
+
+    /**
+     * 每次重试等待时间的倍数
+     *
+     * @return
+     */
+    double multiplier() default 2;
+
+    /**
+     * 随机抖动的比例，0到1之间，实际等待时间在[backoff * (1 - jitter), backoff]之间
+     *
+     * @return
+     */
+    double jitter() default 0.5;
+
+    /**
+     * 需要重试的响应状态码
+     *
+     * @return
+     */
+    int[] statuses() default {502, 503, 504};
+
+    /**
+     * 需要重试的异常
+     *
+     * @return
+     */
+    Class<? extends IOException>[] exceptions() default {IOException.class};
+
+    /**
+     * POST、PATCH这类不幂等的请求是否也重试
+     *
+     * @return
+     */
+    boolean nonIdempotent() default false;
+}
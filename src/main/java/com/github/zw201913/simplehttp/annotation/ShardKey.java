@@ -0,0 +1,15 @@
+package com.github.zw201913.simplehttp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 按照这个参数的值把请求固定发送到@Endpoints中的一个地址，使用带虚拟节点的一致性哈希，地址增减时只有大约1/N的key换地址
+ *
+ * <p>参数仍然按照@Field、@Header这类注解绑定，没有其他注解时同样作为请求参数，简单类型使用参数名作为key（需要使用-parameters编译）；参数为null时按照负载选择地址
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface ShardKey {}
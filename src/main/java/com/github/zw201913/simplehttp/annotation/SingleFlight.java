@@ -0,0 +1,23 @@
+package com.github.zw201913.simplehttp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 合并正在执行的相同请求，只能用于@Get、@Head方法
+ *
+ * <p>url、参数、请求头都相同的请求正在执行时不会再发送新的请求，而是等待它的响应，每个调用者都会解析出自己的返回值
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SingleFlight {
+
+    /**
+     * 是否合并请求，设置为false可以关闭OkHttpClient工厂类开启的合并
+     *
+     * @return
+     */
+    boolean value() default true;
+}
@@ -0,0 +1,44 @@
+package com.github.zw201913.simplehttp.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 超时时间（毫秒），覆盖OkHttpClient的设置，不会创建新的连接池和线程池
+ *
+ * <p>用在接口上时对接口的所有方法生效，方法上设置了的值优先；-1表示不覆盖，0表示不超时
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Timeout {
+
+    /**
+     * 建立连接的超时时间
+     *
+     * @return
+     */
+    long connect() default -1;
+
+    /**
+     * 两次读取数据之间的超时时间
+     *
+     * @return
+     */
+    long read() default -1;
+
+    /**
+     * 两次写入数据之间的超时时间
+     *
+     * @return
+     */
+    long write() default -1;
+
+    /**
+     * 整个请求的超时时间，包括重试、重定向和读取响应体，超时后请求被取消
+     *
+     * @return
+     */
+    long call() default -1;
+}
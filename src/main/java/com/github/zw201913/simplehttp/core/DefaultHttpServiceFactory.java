@@ -4,7 +4,6 @@ import com.github.zw201913.simplehttp.core.proxy.HttpProxyFactory;
 import com.google.common.collect.Maps;
 
 import java.util.Map;
-import java.util.Objects;
 
 /**
  * 通过类名获取代理对象
@@ -36,11 +35,6 @@ public class DefaultHttpServiceFactory implements HttpServiceFactory {
      * @return
      */
     private <T> T cacheProxy(Class<T> type) {
-        T proxy = (T) proxyCache.get(type);
-        if (Objects.isNull(proxy)) {
-            proxy = new HttpProxyFactory<>(type).newInstance();
-            proxyCache.put(type, proxy);
-        }
-        return proxy;
+        return (T) proxyCache.computeIfAbsent(type, key -> new HttpProxyFactory<>(key).newInstance());
     }
 }
@@ -0,0 +1,194 @@
+package com.github.zw201913.simplehttp.core.balance;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个服务地址，记录正在执行的请求数量和耗时的EWMA，同一个OkHttpClient工厂类中相同的地址共享一个Endpoint
+ *
+ * <p>耗时使用Peak EWMA：耗时变长时立即采用新的耗时，变短时按照时间衰减，慢下来的实例很快就会少分到请求
+ *
+ * <p>连续失败（包括健康检查失败）达到OutlierPolicy的次数时剔除一段时间，剔除期间不再分配请求；剔除结束后超过maxEjection没有再被剔除时，剔除时长恢复到baseEjection
+ *
+ * @author zouwei
+ */
+@Slf4j
+public final class Endpoint {
+
+    /** EWMA衰减的时间常数 */
+    private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /** 请求失败时至少按照这个耗时记录，避免快速失败的实例看起来很快 */
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** 地址，末尾没有/ */
+    @Getter private final String base;
+
+    /** 为null时不剔除 */
+    private final OutlierPolicy outlierPolicy;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile double ewma;
+
+    private volatile long lastSample;
+
+    private volatile boolean ejected;
+
+    /** 剔除结束的时间 */
+    private volatile long ejectedUntil;
+
+    /** 连续被剔除的次数，决定剔除时长 */
+    private int ejections;
+
+    Endpoint(String base, OutlierPolicy outlierPolicy) {
+        this.base = base;
+        this.outlierPolicy = outlierPolicy;
+    }
+
+    /**
+     * 负载，耗时乘以正在执行的请求数量，没有耗时样本时只看请求数量
+     *
+     * <p>很久没有样本时耗时按照时间衰减，之前慢的实例过一段时间会重新分到请求
+     *
+     * @return
+     */
+    double cost() {
+        int current = inFlight.get();
+        double latency = ewma * Math.exp(-(double) (System.nanoTime() - lastSample) / DECAY_NANOS);
+        return latency * (current + 1) + current;
+    }
+
+    /** 开始一个请求 */
+    public void start() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求结束
+     *
+     * @param nanos 耗时
+     * @param failure 是否失败
+     */
+    public void finish(long nanos, boolean failure) {
+        inFlight.decrementAndGet();
+        record(failure ? Math.max(nanos, FAILURE_PENALTY_NANOS) : nanos);
+        if (Objects.isNull(outlierPolicy)) {
+            return;
+        }
+        if (!failure) {
+            if (consecutiveFailures.get() != 0) {
+                consecutiveFailures.set(0);
+            }
+            return;
+        }
+        countFailure("连续失败");
+    }
+
+    /** 请求被取消或者被客户端拒绝，没有结果，不记录耗时 */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * 健康检查的结果，成功时恢复，失败时和请求失败一样计入连续失败次数
+     *
+     * @param healthy
+     */
+    public void onProbe(boolean healthy) {
+        if (healthy) {
+            reinstate();
+        } else if (!Objects.isNull(outlierPolicy) && isAvailable()) {
+            countFailure("健康检查和请求连续失败");
+        }
+    }
+
+    /**
+     * 记录一次失败，连续失败达到次数时剔除
+     *
+     * @param reason
+     */
+    private void countFailure(String reason) {
+        if (consecutiveFailures.incrementAndGet() >= outlierPolicy.getConsecutiveFailures()) {
+            eject(reason + outlierPolicy.getConsecutiveFailures() + "次");
+        }
+    }
+
+    /**
+     * 是否可以分配请求
+     *
+     * @return
+     */
+    public boolean isAvailable() {
+        return !ejected || System.nanoTime() - ejectedUntil >= 0;
+    }
+
+    private synchronized void eject(String reason) {
+        long now = System.nanoTime();
+        if (ejected && now - ejectedUntil < 0) {
+            return;
+        }
+        long maxEjection = TimeUnit.MILLISECONDS.toNanos(outlierPolicy.getMaxEjection());
+        if (ejections > 0 && now - ejectedUntil > maxEjection) {
+            // 很久没有被剔除，剔除时长重新开始计算
+            ejections = 0;
+        }
+        ejections++;
+        long duration = TimeUnit.MILLISECONDS.toNanos(outlierPolicy.getBaseEjection());
+        for (int i = 1; i < ejections && duration < maxEjection; i++) {
+            duration *= 2;
+        }
+        duration = Math.min(duration, maxEjection);
+        ejectedUntil = now + duration;
+        ejected = true;
+        consecutiveFailures.set(0);
+        log.warn(base + reason + "，剔除" + TimeUnit.NANOSECONDS.toMillis(duration) + "毫秒");
+    }
+
+    private synchronized void reinstate() {
+        consecutiveFailures.set(0);
+        long now = System.nanoTime();
+        if (ejected && now - ejectedUntil < 0) {
+            log.info(base + "健康检查成功，恢复分配请求");
+            ewma = 0;
+            // 保留ejections，短时间内再次被剔除时剔除时长继续增长
+            ejectedUntil = now;
+        }
+    }
+
+    private synchronized void record(long nanos) {
+        long now = System.nanoTime();
+        double current = ewma;
+        if (current == 0 || nanos > current) {
+            ewma = nanos;
+        } else {
+            double weight = Math.exp(-(double) (now - lastSample) / DECAY_NANOS);
+            ewma = current * weight + nanos * (1 - weight);
+        }
+        lastSample = now;
+    }
+
+    /**
+     * 正在执行的请求数量
+     *
+     * @return
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 耗时的EWMA（毫秒）
+     *
+     * @return
+     */
+    public double latency() {
+        return ewma / 1000_000;
+    }
+}
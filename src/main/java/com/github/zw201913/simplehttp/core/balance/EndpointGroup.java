@@ -0,0 +1,115 @@
+package com.github.zw201913.simplehttp.core.balance;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一组等价的服务地址，每次请求随机挑两个地址，选择负载较低的一个（power of two choices）
+ *
+ * <p>有分片key时按照一致性哈希选择地址，每个地址在哈希环上有VIRTUAL_NODES个虚拟节点，key落在顺时针方向的第一个节点上
+ *
+ * <p>被剔除的地址不参与选择，被剔除地址的key顺延到下一个可用的地址；所有地址都被剔除时仍然按照原来的规则选择
+ *
+ * @author zouwei
+ */
+public final class EndpointGroup {
+
+    /** 每个地址的虚拟节点数量 */
+    private static final int VIRTUAL_NODES = 160;
+
+    @Getter private final List<Endpoint> endpoints;
+
+    /** 哈希环上按照顺序排列的节点位置 */
+    private final long[] ring;
+
+    /** 节点对应的地址 */
+    private final Endpoint[] owners;
+
+    EndpointGroup(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+        int size = endpoints.size() * VIRTUAL_NODES;
+        long[][] nodes = new long[size][];
+        for (int i = 0; i < endpoints.size(); i++) {
+            String base = endpoints.get(i).getBase();
+            for (int j = 0; j < VIRTUAL_NODES; j++) {
+                nodes[i * VIRTUAL_NODES + j] = new long[] {Shard.hash(base + "#" + j), i};
+            }
+        }
+        Arrays.sort(nodes, Comparator.comparingLong(node -> node[0]));
+        this.ring = new long[size];
+        this.owners = new Endpoint[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = nodes[i][0];
+            owners[i] = endpoints.get((int) nodes[i][1]);
+        }
+    }
+
+    /**
+     * 按照分片key选择地址，同一个key总是选择同一个地址
+     *
+     * @param shard
+     * @return
+     */
+    public Endpoint choose(Shard shard) {
+        int index = Arrays.binarySearch(ring, shard.getHash());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        Endpoint first = owners[index % ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            Endpoint owner = owners[(index + i) % ring.length];
+            if (owner.isAvailable()) {
+                return owner;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * 创建请求时使用的地址，拦截器把它替换成选中的地址
+     *
+     * @return
+     */
+    public String template() {
+        return endpoints.get(0).getBase();
+    }
+
+    /**
+     * 选择一个地址
+     *
+     * @return
+     */
+    public Endpoint choose() {
+        int size = endpoints.size();
+        if (size == 1) {
+            return endpoints.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        Endpoint a = endpoints.get(first);
+        Endpoint b = endpoints.get(second);
+        if (a.isAvailable() && b.isAvailable()) {
+            return a.cost() <= b.cost() ? a : b;
+        }
+        if (a.isAvailable() || b.isAvailable()) {
+            return a.isAvailable() ? a : b;
+        }
+        // 两个都被剔除时从可用的地址中选择负载最低的
+        Endpoint best = null;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isAvailable() && (Objects.isNull(best) || endpoint.cost() < best.cost())) {
+                best = endpoint;
+            }
+        }
+        return Objects.isNull(best) ? (a.cost() <= b.cost() ? a : b) : best;
+    }
+}
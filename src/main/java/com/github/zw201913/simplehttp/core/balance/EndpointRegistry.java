@@ -0,0 +1,85 @@
+package com.github.zw201913.simplehttp.core.balance;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 一个OkHttpClient工厂类的所有服务地址，相同的地址在不同的方法之间共享负载和耗时
+ *
+ * @author zouwei
+ */
+@Slf4j
+public final class EndpointRegistry {
+
+    private final ConcurrentMap<String, Endpoint> endpoints = Maps.newConcurrentMap();
+
+    private final OutlierPolicy outlierPolicy;
+
+    private HealthProber healthProber;
+
+    /** @param outlierPolicy 为null时不剔除异常的地址 */
+    public EndpointRegistry(OutlierPolicy outlierPolicy) {
+        this.outlierPolicy = outlierPolicy;
+    }
+
+    /**
+     * 开始定时做健康检查，只能调用一次
+     *
+     * @param client
+     * @param healthCheck
+     */
+    public synchronized void startHealthCheck(OkHttpClient client, HealthCheck healthCheck) {
+        if (!Objects.isNull(healthProber)) {
+            throw new IllegalStateException("健康检查已经开始");
+        }
+        healthProber = new HealthProber(client, healthCheck, endpoints.values());
+        healthProber.start();
+    }
+
+    /**
+     * 创建一组地址
+     *
+     * @param bases
+     * @return
+     */
+    public EndpointGroup group(String[] bases) {
+        if (Objects.isNull(bases) || bases.length == 0) {
+            String logstr = "服务地址不能为空";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        List<Endpoint> group = Lists.newArrayListWithCapacity(bases.length);
+        for (String base : bases) {
+            HttpUrl url = HttpUrl.parse(StringUtils.trimToEmpty(base));
+            if (Objects.isNull(url)) {
+                String logstr = "服务地址" + base + "不合法";
+                log.error(logstr);
+                throw new IllegalArgumentException(logstr);
+            }
+            // 和OkHttp的url保持一致的格式，拦截器按照前缀替换地址
+            String normalized = StringUtils.removeEnd(url.toString(), "/");
+            group.add(
+                    endpoints.computeIfAbsent(normalized, key -> new Endpoint(key, outlierPolicy)));
+        }
+        return new EndpointGroup(Collections.unmodifiableList(group));
+    }
+
+    /**
+     * 所有已经创建的地址，用于查看状态
+     *
+     * @return
+     */
+    public Map<String, Endpoint> endpoints() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.zw201913.simplehttp.core.balance;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 主动健康检查：定时请求每个地址的健康检查路径，返回2xx时恢复被剔除的地址，失败时计入连续失败次数
+ *
+ * <p>健康检查不经过重试、限流、熔断这些拦截器
+ *
+ * @author zouwei
+ */
+@Slf4j
+@Getter
+public final class HealthCheck {
+
+    /** 健康检查路径，拼接在地址后面，例如"/actuator/health" */
+    private final String path;
+
+    /** 检查间隔的毫秒数 */
+    private final long interval;
+
+    /** 每次检查的超时毫秒数 */
+    private final long timeout;
+
+    public HealthCheck(String path, long interval, long timeout) {
+        if (StringUtils.isBlank(path) || interval <= 0 || timeout <= 0) {
+            String logstr = "健康检查的参数不合法";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.path = path.startsWith("/") ? path : "/" + path;
+        this.interval = interval;
+        this.timeout = timeout;
+    }
+}
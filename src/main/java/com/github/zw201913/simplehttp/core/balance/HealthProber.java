@@ -0,0 +1,88 @@
+package com.github.zw201913.simplehttp.core.balance;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时对所有地址做健康检查，请求在OkHttp的线程池中异步发送
+ *
+ * @author zouwei
+ */
+@Slf4j
+final class HealthProber {
+
+    private final OkHttpClient client;
+
+    private final HealthCheck healthCheck;
+
+    private final Collection<Endpoint> endpoints;
+
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "simple-http-health-check");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /**
+     * @param client 没有添加拦截器的OkHttpClient，共享连接池和线程池，只修改超时时间
+     * @param healthCheck
+     * @param endpoints 需要检查的地址，后来加入的地址在下一次检查时生效
+     */
+    HealthProber(OkHttpClient client, HealthCheck healthCheck, Collection<Endpoint> endpoints) {
+        this.client =
+                client.newBuilder()
+                        .callTimeout(healthCheck.getTimeout(), TimeUnit.MILLISECONDS)
+                        .build();
+        this.healthCheck = healthCheck;
+        this.endpoints = endpoints;
+    }
+
+    void start() {
+        long interval = healthCheck.getInterval();
+        timer.scheduleWithFixedDelay(this::probeAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void probeAll() {
+        for (Endpoint endpoint : endpoints) {
+            try {
+                probe(endpoint);
+            } catch (RuntimeException e) {
+                log.error(endpoint.getBase() + "健康检查失败", e);
+            }
+        }
+    }
+
+    private void probe(Endpoint endpoint) {
+        Request request =
+                new Request.Builder().url(endpoint.getBase() + healthCheck.getPath()).build();
+        client.newCall(request)
+                .enqueue(
+                        new Callback() {
+                            @Override
+                            public void onFailure(Call call, IOException e) {
+                                endpoint.onProbe(false);
+                            }
+
+                            @Override
+                            public void onResponse(Call call, Response response) {
+                                try {
+                                    endpoint.onProbe(response.isSuccessful());
+                                } finally {
+                                    response.close();
+                                }
+                            }
+                        });
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.zw201913.simplehttp.core.balance;
+
+import com.github.zw201913.simplehttp.core.resilience.CallRejectedException;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * 把请求发送到EndpointGroup选中的地址，并记录这个地址的负载和耗时
+ *
+ * <p>放在重试拦截器之后，每次重试重新选择地址，有分片key时总是选择同一个地址；url不是以模板地址开头时（例如@Url传入了完整的地址）不处理
+ *
+ * @author zouwei
+ */
+public class LoadBalancerInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        EndpointGroup group = request.tag(EndpointGroup.class);
+        if (Objects.isNull(group)) {
+            return chain.proceed(request);
+        }
+        String url = request.url().toString();
+        String template = group.template();
+        if (!url.startsWith(template)) {
+            return chain.proceed(request);
+        }
+        Shard shard = request.tag(Shard.class);
+        Endpoint endpoint = Objects.isNull(shard) ? group.choose() : group.choose(shard);
+        Request routed =
+                request.newBuilder()
+                        .url(endpoint.getBase() + url.substring(template.length()))
+                        .build();
+        endpoint.start();
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(routed);
+        } catch (CallRejectedException e) {
+            // 被本地的熔断、限流拒绝，不是这个地址的问题
+            endpoint.release();
+            throw e;
+        } catch (IOException | RuntimeException | Error e) {
+            if (chain.call().isCanceled()) {
+                endpoint.release();
+            } else {
+                endpoint.finish(System.nanoTime() - start, true);
+            }
+            throw e;
+        }
+        endpoint.finish(System.nanoTime() - start, response.code() >= 500);
+        return response;
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.zw201913.simplehttp.core.balance;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 异常实例剔除策略：连续失败（异常、超时或者5xx）达到一定次数的地址暂时不再分配请求，剔除时长按照次数指数增长
+ *
+ * @author zouwei
+ */
+@Slf4j
+@Getter
+public final class OutlierPolicy {
+
+    /** 连续失败多少次剔除 */
+    private final int consecutiveFailures;
+
+    /** 第一次剔除的毫秒数，之后每次翻倍 */
+    private final long baseEjection;
+
+    /** 最长剔除的毫秒数 */
+    private final long maxEjection;
+
+    public OutlierPolicy(int consecutiveFailures, long baseEjection, long maxEjection) {
+        if (consecutiveFailures < 1 || baseEjection <= 0 || maxEjection < baseEjection) {
+            String logstr = "异常实例剔除策略的参数不合法";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.consecutiveFailures = consecutiveFailures;
+        this.baseEjection = baseEjection;
+        this.maxEjection = maxEjection;
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.zw201913.simplehttp.core.balance;
+
+import com.google.common.hash.Hashing;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 请求的分片key，放在请求的tag中，由负载均衡拦截器按照一致性哈希选择地址
+ *
+ * @author zouwei
+ */
+@Getter
+public final class Shard {
+
+    private final String key;
+
+    private final long hash;
+
+    public Shard(String key) {
+        this.key = key;
+        this.hash = hash(key);
+    }
+
+    static long hash(String value) {
+        return Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+}
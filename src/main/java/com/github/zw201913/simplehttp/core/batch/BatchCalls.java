@@ -0,0 +1,241 @@
+package com.github.zw201913.simplehttp.core.batch;
+
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 并发执行多个请求并汇总结果
+ *
+ * <p>传入的Future应该是代理方法直接返回的CompletableFuture，汇总结果确定（成功、失败、超时或者被取消）后，还没有完成的请求会被取消，对应的OkHttp Call也会被取消
+ *
+ * @author zouwei
+ */
+@Slf4j
+public final class BatchCalls {
+
+    private BatchCalls() {}
+
+    /** 还没有结果的位置，结果本身可能是null */
+    private static final Object EMPTY = new Object();
+
+    /** 超时计时器 */
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "simple-http-batch-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /**
+     * 等待所有请求成功，结果按照传入顺序排列，任意一个请求失败时立即失败
+     *
+     * @param futures
+     * @param <T>
+     * @return
+     */
+    public static <T> CompletableFuture<List<T>> allOf(
+            List<? extends CompletableFuture<? extends T>> futures) {
+        return quorum(futures.size(), futures);
+    }
+
+    /**
+     * 等待所有请求成功，超时后失败
+     *
+     * @param futures
+     * @param timeout
+     * @param unit
+     * @param <T>
+     * @return
+     */
+    public static <T> CompletableFuture<List<T>> allOf(
+            List<? extends CompletableFuture<? extends T>> futures, long timeout, TimeUnit unit) {
+        return timeout(allOf(futures), timeout, unit);
+    }
+
+    /**
+     * 返回第一个成功的结果，所有请求都失败时才失败
+     *
+     * @param futures
+     * @param <T>
+     * @return
+     */
+    public static <T> CompletableFuture<T> firstSuccessful(
+            List<? extends CompletableFuture<? extends T>> futures) {
+        CompletableFuture<List<T>> gathered = quorum(1, futures);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        gathered.whenComplete(
+                (values, e) -> {
+                    if (Objects.isNull(e)) {
+                        result.complete(values.get(0));
+                    } else {
+                        result.completeExceptionally(unwrap(e));
+                    }
+                });
+        // 取消或者超时时同样取消其他请求
+        result.whenComplete((value, e) -> gathered.cancel(true));
+        return result;
+    }
+
+    /**
+     * 返回第一个成功的结果，超时后失败
+     *
+     * @param futures
+     * @param timeout
+     * @param unit
+     * @param <T>
+     * @return
+     */
+    public static <T> CompletableFuture<T> firstSuccessful(
+            List<? extends CompletableFuture<? extends T>> futures, long timeout, TimeUnit unit) {
+        return timeout(firstSuccessful(futures), timeout, unit);
+    }
+
+    /**
+     * 等待指定数量的请求成功，结果按照传入顺序排列，失败的请求多到不可能达到指定数量时立即失败
+     *
+     * @param required 需要成功的数量
+     * @param futures
+     * @param <T>
+     * @return
+     */
+    public static <T> CompletableFuture<List<T>> quorum(
+            int required, List<? extends CompletableFuture<? extends T>> futures) {
+        int total = futures.size();
+        if (required < 0 || required > total) {
+            String logstr = "需要成功的数量" + required + "必须在0到" + total + "之间";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        if (required == 0) {
+            futures.forEach(future -> future.cancel(true));
+            result.complete(Lists.newArrayList());
+            return result;
+        }
+        // 只有前required个成功的请求写入结果，写入后再计数，计数到required时所有写入都已经可见
+        AtomicReferenceArray<Object> values = new AtomicReferenceArray<>(total);
+        for (int i = 0; i < total; i++) {
+            values.set(i, EMPTY);
+        }
+        AtomicInteger claimed = new AtomicInteger();
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < total; i++) {
+            final int index = i;
+            futures.get(i)
+                    .whenComplete(
+                            (value, e) -> {
+                                if (Objects.isNull(e)) {
+                                    if (claimed.getAndIncrement() >= required) {
+                                        return;
+                                    }
+                                    values.set(index, value);
+                                    if (successes.incrementAndGet() == required) {
+                                        result.complete(collect(values, required));
+                                    }
+                                    return;
+                                }
+                                errors.add(unwrap(e));
+                                if (failures.incrementAndGet() == total - required + 1) {
+                                    result.completeExceptionally(failure(required, errors));
+                                }
+                            });
+        }
+        // 结果确定后取消其他请求，已经完成的请求取消不会有影响
+        result.whenComplete((value, e) -> futures.forEach(future -> future.cancel(true)));
+        return result;
+    }
+
+    /**
+     * 等待指定数量的请求成功，超时后失败
+     *
+     * @param required
+     * @param futures
+     * @param timeout
+     * @param unit
+     * @param <T>
+     * @return
+     */
+    public static <T> CompletableFuture<List<T>> quorum(
+            int required,
+            List<? extends CompletableFuture<? extends T>> futures,
+            long timeout,
+            TimeUnit unit) {
+        return timeout(quorum(required, futures), timeout, unit);
+    }
+
+    /**
+     * 超时后以TimeoutException结束Future
+     *
+     * @param future
+     * @param timeout
+     * @param unit
+     * @param <T>
+     * @return 传入的Future
+     */
+    public static <T> CompletableFuture<T> timeout(
+            CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        if (future.isDone()) {
+            return future;
+        }
+        ScheduledFuture<?> task =
+                TIMER.schedule(
+                        () ->
+                                future.completeExceptionally(
+                                        new TimeoutException(
+                                                "请求超过" + unit.toMillis(timeout) + "毫秒没有完成")),
+                        timeout,
+                        unit);
+        future.whenComplete((value, e) -> task.cancel(false));
+        return future;
+    }
+
+    private static <T> List<T> collect(AtomicReferenceArray<Object> values, int required) {
+        List<T> list = Lists.newArrayListWithCapacity(required);
+        for (int i = 0; i < values.length() && list.size() < required; i++) {
+            Object value = values.get(i);
+            if (value != EMPTY) {
+                @SuppressWarnings("unchecked")
+                T typed = (T) value;
+                list.add(typed);
+            }
+        }
+        return list;
+    }
+
+    private static Throwable failure(int required, Queue<Throwable> errors) {
+        Throwable first = errors.peek();
+        if (errors.size() == 1) {
+            return first;
+        }
+        IllegalStateException exception =
+                new IllegalStateException("成功的请求数量达不到" + required, first);
+        errors.stream().skip(1).forEach(exception::addSuppressed);
+        return exception;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        if ((e instanceof CompletionException || e instanceof ExecutionException)
+                && !Objects.isNull(e.getCause())) {
+            return e.getCause();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,242 @@
+package com.github.zw201913.simplehttp.core.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.zw201913.simplehttp.annotation.Cached;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Request;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 方法返回值的内存缓存，使用Caffeine的W-TinyLFU淘汰策略，按照响应体的字节数限制容量
+ *
+ * <p>快过期或者在stale窗口内的缓存被读取时返回旧值并在后台刷新，同一个key同时只有一个刷新，刷新数量超过限制时放弃刷新
+ *
+ * @author zouwei
+ */
+@Slf4j
+public final class ResponseCache {
+
+    /** 所有方法的缓存，用于查看统计信息 */
+    private static final Map<String, ResponseCache> CACHES = Maps.newConcurrentMap();
+
+    @Getter private final String name;
+
+    private final String[] headers;
+
+    private final long ttlNanos;
+
+    /** 写入多久之后需要刷新，没有开启提前刷新时等于ttl */
+    private final long refreshNanos;
+
+    private final Cache<String, Entry> cache;
+
+    /** 正在刷新的key */
+    private final Set<String> refreshing = Sets.newConcurrentHashSet();
+
+    private final Semaphore refreshPermits;
+
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    private final AtomicLong droppedRefreshCount = new AtomicLong();
+
+    private ResponseCache(String name, Cached cached) {
+        TimeUnit timeUnit = cached.timeUnit();
+        this.name = name;
+        this.headers = cached.headers();
+        this.ttlNanos = timeUnit.toNanos(cached.ttl());
+        this.refreshNanos =
+                cached.refreshAfter() > 0 ? timeUnit.toNanos(cached.refreshAfter()) : ttlNanos;
+        this.refreshPermits = new Semaphore(Math.max(cached.maxRefreshes(), 1));
+        long staleNanos = timeUnit.toNanos(Math.max(cached.staleWhileRevalidate(), 0));
+        this.cache =
+                Caffeine.newBuilder()
+                        .maximumWeight(cached.maxBytes())
+                        .weigher((String key, Entry entry) -> entry.weight)
+                        // stale窗口内的值还需要保留
+                        .expireAfterWrite(ttlNanos + staleNanos, TimeUnit.NANOSECONDS)
+                        .recordStats()
+                        .build();
+    }
+
+    /**
+     * 创建缓存并登记
+     *
+     * @param name 缓存名称，一般是接口名加方法名
+     * @param cached
+     * @return
+     */
+    public static ResponseCache create(String name, Cached cached) {
+        ResponseCache responseCache = new ResponseCache(name, cached);
+        CACHES.put(name, responseCache);
+        return responseCache;
+    }
+
+    /**
+     * 所有方法的缓存
+     *
+     * @return
+     */
+    public static Map<String, ResponseCache> caches() {
+        return ImmutableMap.copyOf(CACHES);
+    }
+
+    /**
+     * 计算请求的缓存key
+     *
+     * @param request
+     * @return
+     */
+    public String key(Request request) {
+        StringBuilder key = new StringBuilder(request.method()).append(' ').append(request.url());
+        for (String header : headers) {
+            String value = request.header(header);
+            if (!Objects.isNull(value)) {
+                key.append('\n').append(header).append(": ").append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param key
+     * @return 没有缓存或者已经过期时返回null
+     */
+    public Object get(String key) {
+        return get(key, null);
+    }
+
+    /**
+     * 读取缓存，需要刷新时在后台调用refresher，refresher返回的Future完成之前不会重复刷新同一个key
+     *
+     * @param key
+     * @param refresher 发送刷新请求，结果需要自己写入缓存
+     * @return 没有缓存或者超过stale窗口时返回null
+     */
+    public Object get(String key, Function<String, CompletableFuture<?>> refresher) {
+        Entry entry = cache.getIfPresent(key);
+        if (Objects.isNull(entry)) {
+            return null;
+        }
+        long age = System.nanoTime() - entry.writeTime;
+        if (age < refreshNanos) {
+            return entry.value;
+        }
+        if (Objects.isNull(refresher)) {
+            return age < ttlNanos ? entry.value : null;
+        }
+        refresh(key, refresher);
+        return entry.value;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key
+     * @param value
+     * @param bytes 响应体的字节数
+     */
+    public void put(String key, Object value, long bytes) {
+        if (Objects.isNull(value)) {
+            return;
+        }
+        int weight = (int) Math.min(Math.max(bytes, 1), Integer.MAX_VALUE);
+        cache.put(key, new Entry(value, weight, System.nanoTime()));
+    }
+
+    /** 清空缓存 */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 命中、未命中、淘汰次数等统计信息
+     *
+     * @return
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 后台刷新的次数
+     *
+     * @return
+     */
+    public long refreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * 因为刷新数量超过限制而放弃的刷新次数
+     *
+     * @return
+     */
+    public long droppedRefreshCount() {
+        return droppedRefreshCount.get();
+    }
+
+    private void refresh(String key, Function<String, CompletableFuture<?>> refresher) {
+        if (!refreshing.add(key)) {
+            // 已经在刷新
+            return;
+        }
+        if (!refreshPermits.tryAcquire()) {
+            refreshing.remove(key);
+            droppedRefreshCount.incrementAndGet();
+            return;
+        }
+        refreshCount.incrementAndGet();
+        CompletableFuture<?> future;
+        try {
+            future = refresher.apply(key);
+        } catch (RuntimeException e) {
+            finishRefresh(key);
+            log.warn(name + "刷新缓存失败", e);
+            return;
+        }
+        future.whenComplete(
+                (value, e) -> {
+                    finishRefresh(key);
+                    if (!Objects.isNull(e)) {
+                        log.warn(name + "刷新缓存失败", e);
+                    }
+                });
+    }
+
+    private void finishRefresh(String key) {
+        refreshing.remove(key);
+        refreshPermits.release();
+    }
+
+    /** 缓存的值、权重和写入时间 */
+    private static final class Entry {
+
+        private final Object value;
+
+        private final int weight;
+
+        private final long writeTime;
+
+        Entry(Object value, int weight, long writeTime) {
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+    }
+}
@@ -1,15 +1,67 @@
 package com.github.zw201913.simplehttp.core.factory;
 
+import com.github.zw201913.simplehttp.core.balance.EndpointRegistry;
+import com.github.zw201913.simplehttp.core.balance.HealthCheck;
+import com.github.zw201913.simplehttp.core.balance.LoadBalancerInterceptor;
+import com.github.zw201913.simplehttp.core.balance.OutlierPolicy;
+import com.github.zw201913.simplehttp.core.resilience.CircuitBreakerInterceptor;
+import com.github.zw201913.simplehttp.core.resilience.CircuitBreakerPolicy;
+import com.github.zw201913.simplehttp.core.resilience.CircuitBreakers;
+import com.github.zw201913.simplehttp.core.resilience.ConcurrencyLimitInterceptor;
+import com.github.zw201913.simplehttp.core.resilience.ConcurrencyLimitPolicy;
+import com.github.zw201913.simplehttp.core.resilience.ConcurrencyLimiters;
+import com.github.zw201913.simplehttp.core.resilience.DeadlineInterceptor;
+import com.github.zw201913.simplehttp.core.resilience.RateLimitInterceptor;
+import com.github.zw201913.simplehttp.core.resilience.RateLimitPolicy;
+import com.github.zw201913.simplehttp.core.resilience.RateLimiters;
+import com.github.zw201913.simplehttp.core.resilience.RetryBudget;
+import com.github.zw201913.simplehttp.core.resilience.RetryInterceptor;
+import com.github.zw201913.simplehttp.core.resilience.RetryPolicy;
+import com.github.zw201913.simplehttp.core.resilience.TimeoutInterceptor;
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 
+import java.io.File;
+import java.util.Objects;
+
 /** @author zouwei */
 public abstract class BaseOkHttpClientFactory {
 
     /** final是为了保持单例 */
     private final OkHttpClient client;
 
+    private final EndpointRegistry endpointRegistry;
+
+    private final CircuitBreakers circuitBreakers;
+
+    private final RateLimiters rateLimiters;
+
+    private final ConcurrencyLimiters concurrencyLimiters;
+
     public BaseOkHttpClientFactory() {
-        this.client = httpClient();
+        OkHttpClient base = httpClient();
+        OkHttpClient.Builder builder = base.newBuilder();
+        Cache cache = httpCache();
+        if (!Objects.isNull(cache)) {
+            builder.cache(cache);
+        }
+        builder.addInterceptor(new TimeoutInterceptor());
+        builder.addInterceptor(new RetryInterceptor(retryPolicy(), retryBudget()));
+        builder.addInterceptor(new DeadlineInterceptor());
+        this.endpointRegistry = new EndpointRegistry(outlierPolicy());
+        builder.addInterceptor(new LoadBalancerInterceptor());
+        this.rateLimiters = new RateLimiters(rateLimitPolicy());
+        builder.addInterceptor(new RateLimitInterceptor(rateLimiters));
+        this.concurrencyLimiters = new ConcurrencyLimiters(concurrencyLimitPolicy());
+        builder.addInterceptor(new ConcurrencyLimitInterceptor(concurrencyLimiters));
+        this.circuitBreakers = new CircuitBreakers(circuitBreakerPolicy());
+        builder.addInterceptor(new CircuitBreakerInterceptor(circuitBreakers));
+        this.client = builder.build();
+        HealthCheck healthCheck = healthCheck();
+        if (!Objects.isNull(healthCheck)) {
+            // 健康检查不经过重试、限流、熔断，主机熔断时也能检查地址是否恢复
+            endpointRegistry.startHealthCheck(base, healthCheck);
+        }
     }
 
     /**
@@ -19,6 +71,101 @@ public abstract class BaseOkHttpClientFactory {
      */
     protected abstract OkHttpClient httpClient();
 
+    /**
+     * HTTP缓存，子类可以覆盖，默认不使用缓存
+     *
+     * <p>开启后按照Cache-Control缓存响应，自动发送If-None-Match、If-Modified-Since，服务端返回304时使用缓存的响应体
+     *
+     * @return
+     */
+    protected Cache httpCache() {
+        return null;
+    }
+
+    /**
+     * 方法上没有@Retry时使用的重试策略，子类可以覆盖，默认不重试
+     *
+     * @return
+     */
+    protected RetryPolicy retryPolicy() {
+        return null;
+    }
+
+    /**
+     * 重试预算，所有使用这个工厂类的请求共享，子类可以覆盖
+     *
+     * <p>默认重试数量不超过请求数量的20%，请求很少时每秒也允许10次重试
+     *
+     * @return 为null时不限制重试
+     */
+    protected RetryBudget retryBudget() {
+        return new RetryBudget(0.2, 10, 100);
+    }
+
+    /**
+     * 使用@Endpoints时异常地址的剔除策略，子类可以覆盖
+     *
+     * <p>默认连续失败5次剔除30秒，再次被剔除时剔除时长翻倍，最长5分钟
+     *
+     * @return 为null时不剔除
+     */
+    protected OutlierPolicy outlierPolicy() {
+        return new OutlierPolicy(5, 30000, 300000);
+    }
+
+    /**
+     * 使用@Endpoints时地址的主动健康检查，子类可以覆盖，默认不检查
+     *
+     * <p>例如new HealthCheck("/actuator/health", 5000, 1000)：每5秒检查一次，超时1秒，被剔除的地址检查成功时立即恢复
+     *
+     * @return
+     */
+    protected HealthCheck healthCheck() {
+        return null;
+    }
+
+    /**
+     * 方法上没有@CircuitBreaker时使用的熔断策略，按照主机和端口熔断，子类可以覆盖，默认不熔断
+     *
+     * @return
+     */
+    protected CircuitBreakerPolicy circuitBreakerPolicy() {
+        return null;
+    }
+
+    /**
+     * 方法上没有@RateLimit时使用的限流策略，按照主机和端口限流，子类可以覆盖，默认不限流
+     *
+     * @return
+     */
+    protected RateLimitPolicy rateLimitPolicy() {
+        return null;
+    }
+
+    /**
+     * 按照请求耗时自动调整每个主机并发数量的策略，子类可以覆盖，默认不限制
+     *
+     * <p>例如new ConcurrencyLimitPolicy(20, 1, 200, 0)：从20个并发开始，在1到200之间调整，达到限制时直接拒绝
+     *
+     * @return
+     */
+    protected ConcurrencyLimitPolicy concurrencyLimitPolicy() {
+        return null;
+    }
+
+    /**
+     * 在临时目录中创建有大小限制的HTTP缓存
+     *
+     * @param name 缓存目录名，不同的工厂类不要使用相同的目录
+     * @param maxBytes 最多占用的磁盘空间
+     * @return
+     */
+    protected static Cache diskCache(String name, long maxBytes) {
+        File directory =
+                new File(new File(System.getProperty("java.io.tmpdir"), "simple-http-cache"), name);
+        return new Cache(directory, maxBytes);
+    }
+
     /**
      * 获取创建好的OkHttpClient
      *
@@ -27,4 +174,49 @@ public abstract class BaseOkHttpClientFactory {
     public OkHttpClient okHttpClient() {
         return this.client;
     }
+
+    /**
+     * 是否合并正在执行的相同GET、HEAD请求，子类可以覆盖，方法上的@SingleFlight优先
+     *
+     * @return
+     */
+    public boolean singleFlight() {
+        return false;
+    }
+
+    /**
+     * 这个工厂类的所有服务地址，可以查看每个地址的负载和耗时
+     *
+     * @return
+     */
+    public EndpointRegistry endpoints() {
+        return this.endpointRegistry;
+    }
+
+    /**
+     * 这个工厂类的所有熔断器，可以查看状态或者手动重置
+     *
+     * @return
+     */
+    public CircuitBreakers circuitBreakers() {
+        return this.circuitBreakers;
+    }
+
+    /**
+     * 这个工厂类的所有限流器，可以查看剩余的许可
+     *
+     * @return
+     */
+    public RateLimiters rateLimiters() {
+        return this.rateLimiters;
+    }
+
+    /**
+     * 这个工厂类的所有并发限制器，可以查看当前的并发限制和耗时
+     *
+     * @return
+     */
+    public ConcurrencyLimiters concurrencyLimiters() {
+        return this.concurrencyLimiters;
+    }
 }
@@ -0,0 +1,18 @@
+package com.github.zw201913.simplehttp.core.factory;
+
+import okhttp3.Cache;
+
+/**
+ * 使用HTTP缓存的OkHttpClient，缓存在临时目录中按类名区分的目录，最多占用50MB
+ *
+ * @author zouwei
+ */
+public class CachingOkHttpClientFactory extends DefaultOkHttpClientFactory {
+
+    private static final long MAX_CACHE_BYTES = 50L * 1024 * 1024;
+
+    @Override
+    protected Cache httpCache() {
+        return diskCache(getClass().getName(), MAX_CACHE_BYTES);
+    }
+}
@@ -2,6 +2,8 @@ package com.github.zw201913.simplehttp.core.http;
 
 import com.github.zw201913.simplehttp.core.factory.BaseOkHttpClientFactory;
 import com.github.zw201913.simplehttp.core.handler.RequestParamsHandler;
+import com.github.zw201913.simplehttp.core.resilience.Deadline;
+import com.github.zw201913.simplehttp.core.resilience.TimeoutPolicy;
 import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
@@ -11,6 +13,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /** @author zouwei */
 @Slf4j
@@ -50,11 +53,63 @@ public abstract class AbstractHttp {
             Map<String, Object> params,
             Map<String, File[]> files,
             ProgressListener progressListener) {
+        return newCall(newRequest(url, headers, params, files, progressListener));
+    }
+
+    /**
+     * 使用创建好的Request创建Call，同一个Request可以创建多个Call
+     *
+     * <p>整个请求的超时时间由callTimeoutNanos决定
+     *
+     * @param request
+     * @return
+     */
+    public Call newCall(Request request) {
         if (Objects.equals(this.getClass(), WebSocketFactory.class)) {
             throw new RuntimeException("WebSocket请求方式错误");
         }
-        return okHttpClient().newCall(newRequest(url, headers, params, files, progressListener));
+        OkHttpClient client = okHttpClient();
+        Call call = client.newCall(request);
+        long timeoutNanos = callTimeoutNanos(request);
+        if (timeoutNanos == TimeUnit.MILLISECONDS.toNanos(client.callTimeoutMillis())) {
+            return call;
+        }
+        if (timeoutNanos == 0) {
+            // @Timeout(call = 0)表示不超时，去掉OkHttpClient的callTimeout
+            call.timeout().clearTimeout();
+        } else {
+            call.timeout().timeout(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        return call;
     }
+
+    /**
+     * 请求的整个超时时间
+     *
+     * <p>请求的tag中有超时策略或者截止时间时，整个请求的超时时间取两者中较短的一个，没有超时策略时截止时间不会超过OkHttpClient的callTimeout；
+     * 超时策略的call为0时不超时，只受截止时间限制
+     *
+     * @param request
+     * @return 纳秒，0表示不超时
+     */
+    public long callTimeoutNanos(Request request) {
+        // 没有超时策略时以OkHttpClient的设置为准，截止时间只能缩短不能延长
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(okHttpClient().callTimeoutMillis());
+        TimeoutPolicy timeoutPolicy = request.tag(TimeoutPolicy.class);
+        if (!Objects.isNull(timeoutPolicy) && timeoutPolicy.getCall() != TimeoutPolicy.UNSET) {
+            timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutPolicy.getCall());
+        }
+        Deadline deadline = request.tag(Deadline.class);
+        if (!Objects.isNull(deadline)) {
+            // 已经超时的请求由拦截器直接拒绝，这里不设置
+            long remaining = deadline.remaining(TimeUnit.NANOSECONDS);
+            if (remaining > 0 && (timeoutNanos == 0 || remaining < timeoutNanos)) {
+                timeoutNanos = remaining;
+            }
+        }
+        return timeoutNanos;
+    }
+
     /**
      * 发送请求
      *
@@ -128,7 +183,7 @@ public abstract class AbstractHttp {
             Map<String, File[]> files,
             ProgressListener progressListener,
             Callback responseCallback) {
-        newCall(url, headers, params, files, progressListener).enqueue(responseCallback);
+        enqueue(url, headers, params, files, progressListener, responseCallback);
     }
 
     /**
@@ -168,6 +223,29 @@ public abstract class AbstractHttp {
         sendAsync(url, null, responseCallback);
     }
 
+    /**
+     * 发送异步请求，和sendAsync相同，返回的Call可以用来取消请求
+     *
+     * @param url
+     * @param headers
+     * @param params
+     * @param files
+     * @param progressListener
+     * @param responseCallback
+     * @return
+     */
+    public Call enqueue(
+            String url,
+            Map<String, String> headers,
+            Map<String, Object> params,
+            Map<String, File[]> files,
+            ProgressListener progressListener,
+            Callback responseCallback) {
+        Call call = newCall(url, headers, params, files, progressListener);
+        call.enqueue(responseCallback);
+        return call;
+    }
+
     /**
      * 创建请求
      *
@@ -177,7 +255,7 @@ public abstract class AbstractHttp {
      * @param files
      * @return
      */
-    private Request newRequest(
+    public Request newRequest(
             String url,
             Map<String, String> headers,
             Map<String, Object> params,
@@ -0,0 +1,66 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 在OkHttp的Dispatcher线程中完成的Future，取消Future的同时取消请求
+ *
+ * @author zouwei
+ */
+class CallFuture<T> extends CompletableFuture<T> implements Callback {
+
+    private final ResponseDecoder decoder;
+
+    private volatile Call call;
+
+    CallFuture(ResponseDecoder decoder) {
+        this.decoder = decoder;
+    }
+
+    /**
+     * 关联请求，Future已经取消的话直接取消请求
+     *
+     * @param call
+     */
+    void setCall(Call call) {
+        this.call = call;
+        if (isCancelled()) {
+            call.cancel();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        Call current = this.call;
+        if (cancelled && !Objects.isNull(current)) {
+            current.cancel();
+        }
+        return cancelled;
+    }
+
+    @Override
+    public void onFailure(Call call, IOException e) {
+        completeExceptionally(e);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onResponse(Call call, Response response) {
+        if (isDone()) {
+            response.close();
+            return;
+        }
+        try {
+            complete((T) decoder.decode(response));
+        } catch (Throwable e) {
+            completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.core.http.AbstractHttp;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.codehaus.jackson.type.JavaType;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 把请求包装成Publisher，每次订阅创建一个新的Call，第一次request时才发送请求
+ *
+ * <p>elementType为null时响应解码成一个值；否则按需从响应体中逐个读取元素，没有需求时暂停读取，需求恢复后在OkHttp的线程池中继续读取
+ *
+ * @author zouwei
+ */
+class CallPublisher<T> implements Publisher<T> {
+
+    private final AbstractHttp http;
+
+    private final Request request;
+
+    private final ResponseDecoder decoder;
+
+    private final JavaType elementType;
+
+    CallPublisher(
+            AbstractHttp http, Request request, ResponseDecoder decoder, JavaType elementType) {
+        this.http = http;
+        this.request = request;
+        this.decoder = decoder;
+        this.elementType = elementType;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber不能为空");
+        Call call = http.newCall(request);
+        Executor executor = http.okHttpClient().dispatcher().executorService();
+        subscriber.onSubscribe(new CallSubscription<>(subscriber, call, executor, this));
+    }
+
+    /** 一次订阅 */
+    private static final class CallSubscription<T> implements Subscription, Callback {
+
+        private final Subscriber<? super T> subscriber;
+
+        private final Call call;
+
+        private final Executor executor;
+
+        private final CallPublisher<T> parent;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private final AtomicReference<JsonElementReader> reader = new AtomicReference<>();
+
+        /** 单个值的结果，只在drain中读写 */
+        private Object value;
+
+        private volatile boolean ready;
+
+        private volatile boolean cancelled;
+
+        private volatile boolean done;
+
+        CallSubscription(
+                Subscriber<? super T> subscriber,
+                Call call,
+                Executor executor,
+                CallPublisher<T> parent) {
+            this.subscriber = subscriber;
+            this.call = call;
+            this.executor = executor;
+            this.parent = parent;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                error(new IllegalArgumentException("request的数量必须大于0，当前是" + n));
+                return;
+            }
+            addRequested(n);
+            if (started.compareAndSet(false, true)) {
+                call.enqueue(this);
+                return;
+            }
+            if (ready) {
+                drain(true);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            call.cancel();
+            if (wip.getAndIncrement() == 0) {
+                // 没有在读取，直接关闭响应
+                closeReader();
+            }
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            if (!cancelled) {
+                error(e);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            if (cancelled) {
+                response.close();
+                return;
+            }
+            try {
+                if (Objects.isNull(parent.elementType)) {
+                    value = parent.decoder.decode(response);
+                } else {
+                    reader.set(new JsonElementReader(response, parent.elementType));
+                }
+            } catch (Throwable e) {
+                error(e);
+                return;
+            }
+            ready = true;
+            if (cancelled) {
+                closeReader();
+                return;
+            }
+            drain(false);
+        }
+
+        /**
+         * 按照需求发送数据，同一时间只有一个线程在发送
+         *
+         * @param async 是否切换到OkHttp的线程池中读取响应体
+         */
+        private void drain(boolean async) {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            if (async) {
+                executor.execute(this::drainLoop);
+            } else {
+                drainLoop();
+            }
+        }
+
+        private void drainLoop() {
+            int missed = 1;
+            for (; ; ) {
+                if (Objects.isNull(parent.elementType)) {
+                    emitValue();
+                    return;
+                }
+                long r = requested.get();
+                long e = 0;
+                while (e != r) {
+                    if (cancelled) {
+                        closeReader();
+                        return;
+                    }
+                    Object element;
+                    try {
+                        element = reader.get().read();
+                    } catch (Throwable ex) {
+                        closeReader();
+                        if (!cancelled) {
+                            error(ex);
+                        }
+                        return;
+                    }
+                    if (Objects.isNull(element)) {
+                        closeReader();
+                        complete();
+                        return;
+                    }
+                    @SuppressWarnings("unchecked")
+                    T next = (T) element;
+                    subscriber.onNext(next);
+                    e++;
+                }
+                if (cancelled) {
+                    closeReader();
+                    return;
+                }
+                if (e != 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-e);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /** 单个值在有需求时发送，发送完直接结束 */
+        private void emitValue() {
+            if (cancelled) {
+                closeValue();
+                return;
+            }
+            if (requested.get() == 0) {
+                // 还没有需求，等待下一次request
+                if (wip.decrementAndGet() != 0) {
+                    drainLoop();
+                }
+                return;
+            }
+            Object current = value;
+            value = null;
+            if (!Objects.isNull(current)) {
+                @SuppressWarnings("unchecked")
+                T next = (T) current;
+                subscriber.onNext(next);
+            }
+            complete();
+        }
+
+        private void closeValue() {
+            Object current = value;
+            value = null;
+            if (current instanceof Closeable) {
+                // Response、InputStream这类需要调用者关闭的值没有发送出去
+                try {
+                    ((Closeable) current).close();
+                } catch (IOException e) {
+                    // 忽略关闭异常
+                }
+            }
+        }
+
+        private void closeReader() {
+            JsonElementReader current = reader.getAndSet(null);
+            if (!Objects.isNull(current)) {
+                current.close();
+            }
+            closeValue();
+        }
+
+        private void addRequested(long n) {
+            for (; ; ) {
+                long current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+                long next = current + n;
+                if (next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+                if (requested.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+
+        private void complete() {
+            if (!done) {
+                done = true;
+                subscriber.onComplete();
+            }
+        }
+
+        private void error(Throwable e) {
+            if (!done) {
+                done = true;
+                subscriber.onError(e);
+            }
+        }
+    }
+}
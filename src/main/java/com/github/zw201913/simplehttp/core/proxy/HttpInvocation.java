@@ -0,0 +1,162 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.core.handler.ResponseHandler;
+import com.github.zw201913.simplehttp.core.http.ProgressListener;
+import com.github.zw201913.simplehttp.support.BeanMetadata;
+import com.github.zw201913.simplehttp.support.CastUtils;
+import com.google.common.collect.Maps;
+import lombok.Getter;
+import lombok.Setter;
+import okhttp3.Callback;
+import okhttp3.WebSocketListener;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 一次方法调用正在构建的请求，参数绑定器直接把数据写进来
+ *
+ * @author zouwei
+ */
+@Getter
+public class HttpInvocation {
+
+    @Setter private String url;
+
+    private Map<String, String> headers;
+
+    private Map<String, Object> params;
+
+    private Map<String, File[]> files;
+
+    @Setter private Callback callback;
+
+    @Setter private ProgressListener progressListener;
+
+    @Setter private ResponseHandler responseHandler;
+
+    @Setter private WebSocketListener webSocketListener;
+    /** @ShardKey参数的值 */
+    @Setter private String shardKey;
+    /** 方法的原始参数，只有配置了熔断fallback的方法才会设置 */
+    @Setter private Object[] arguments;
+
+    /**
+     * 添加请求头
+     *
+     * @param key
+     * @param value
+     */
+    public void header(String key, String value) {
+        if (Objects.isNull(headers)) {
+            headers = Maps.newHashMap();
+        }
+        headers.put(key, value);
+    }
+
+    /**
+     * 添加简单请求参数
+     *
+     * @param key
+     * @param value
+     */
+    public void param(String key, Object value) {
+        if (Objects.isNull(params)) {
+            params = Maps.newHashMap();
+        }
+        params.put(key, value);
+    }
+
+    /**
+     * 添加上传文件
+     *
+     * @param key
+     * @param value
+     */
+    public void file(String key, File[] value) {
+        if (Objects.isNull(files)) {
+            files = Maps.newHashMap();
+        }
+        files.put(key, value);
+    }
+
+    /**
+     * 添加类型未知的请求参数，文件和简单数据分开存放
+     *
+     * @param key
+     * @param value
+     */
+    public void field(String key, Object value) {
+        if (value instanceof File) {
+            file(key, new File[] {(File) value});
+        } else if (value instanceof File[]) {
+            file(key, (File[]) value);
+        } else {
+            param(key, value);
+        }
+    }
+
+    /**
+     * 添加多个请求头
+     *
+     * @param map
+     */
+    public void headers(Map<?, ?> map) {
+        map.forEach((key, value) -> header(CastUtils.castString(key), CastUtils.castString(value)));
+    }
+
+    /**
+     * 添加多个请求参数
+     *
+     * @param map
+     */
+    public void fields(Map<?, ?> map) {
+        map.forEach((key, value) -> field(CastUtils.castString(key), value));
+    }
+
+    /**
+     * 处理自定义对象
+     *
+     * @param bean
+     * @param isField 没有注解的字段是否当作请求参数，否则当作请求头
+     */
+    public void bean(Object bean, boolean isField) {
+        for (BeanMetadata.Property property : BeanMetadata.of(bean.getClass()).getProperties()) {
+            Object value = property.get(bean);
+            if (Objects.isNull(value)) {
+                continue;
+            }
+            switch (property.getTarget()) {
+                case FIELD:
+                    field(property.getKey(), value);
+                    break;
+                case HEADER:
+                    header(property.getKey(), CastUtils.castString(value));
+                    break;
+                case URL:
+                    setUrl((String) value);
+                    break;
+                default:
+                    if (isField) {
+                        field(property.getKey(), value);
+                    } else {
+                        header(property.getKey(), CastUtils.castString(value));
+                    }
+            }
+        }
+    }
+
+    public Map<String, String> getHeaders() {
+        return Objects.isNull(headers) ? Collections.emptyMap() : headers;
+    }
+
+    public Map<String, Object> getParams() {
+        return Objects.isNull(params) ? Collections.emptyMap() : params;
+    }
+
+    public Map<String, File[]> getFiles() {
+        return Objects.isNull(files) ? Collections.emptyMap() : files;
+    }
+}
@@ -1,33 +1,67 @@
 package com.github.zw201913.simplehttp.core.proxy;
 
+import com.github.zw201913.simplehttp.annotation.Bulkhead;
+import com.github.zw201913.simplehttp.annotation.Cached;
+import com.github.zw201913.simplehttp.annotation.Endpoints;
+import com.github.zw201913.simplehttp.annotation.CircuitBreaker;
 import com.github.zw201913.simplehttp.annotation.Field;
 import com.github.zw201913.simplehttp.annotation.Header;
+import com.github.zw201913.simplehttp.annotation.RateLimit;
+import com.github.zw201913.simplehttp.annotation.Hedge;
+import com.github.zw201913.simplehttp.annotation.Retry;
+import com.github.zw201913.simplehttp.annotation.ShardKey;
+import com.github.zw201913.simplehttp.annotation.SingleFlight;
+import com.github.zw201913.simplehttp.annotation.Timeout;
 import com.github.zw201913.simplehttp.annotation.Url;
+import com.github.zw201913.simplehttp.core.balance.Endpoint;
+import com.github.zw201913.simplehttp.core.balance.EndpointGroup;
+import com.github.zw201913.simplehttp.core.balance.Shard;
+import com.github.zw201913.simplehttp.core.cache.ResponseCache;
 import com.github.zw201913.simplehttp.core.factory.BaseOkHttpClientFactory;
 import com.github.zw201913.simplehttp.core.handler.FormDataJsonRequestParamsHandler;
 import com.github.zw201913.simplehttp.core.handler.RequestParamsHandler;
 import com.github.zw201913.simplehttp.core.handler.ResponseHandler;
 import com.github.zw201913.simplehttp.core.handler.SimpleJsonRequestParamsHandler;
 import com.github.zw201913.simplehttp.core.http.*;
-import com.github.zw201913.simplehttp.support.CastUtils;
+import com.github.zw201913.simplehttp.core.resilience.BulkheadCall;
+import com.github.zw201913.simplehttp.core.resilience.Circuit;
+import com.github.zw201913.simplehttp.core.resilience.CircuitBreakerPolicy;
+import com.github.zw201913.simplehttp.core.resilience.CircuitOpenException;
+import com.github.zw201913.simplehttp.core.resilience.Compartment;
+import com.github.zw201913.simplehttp.core.resilience.Deadline;
+import com.github.zw201913.simplehttp.core.resilience.HedgePolicy;
+import com.github.zw201913.simplehttp.core.resilience.HedgedCall;
+import com.github.zw201913.simplehttp.core.resilience.RateLimitPolicy;
+import com.github.zw201913.simplehttp.core.resilience.RateLimiter;
+import com.github.zw201913.simplehttp.core.resilience.RetryPolicy;
+import com.github.zw201913.simplehttp.core.resilience.TimeoutPolicy;
 import com.github.zw201913.simplehttp.support.ClassUtils;
 import com.github.zw201913.simplehttp.support.HttpUtils;
+import com.github.zw201913.simplehttp.support.JsonUtils;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import lombok.Data;
+import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
 import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jackson.type.JavaType;
 import org.springframework.util.CollectionUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
 /**
  * 执行方法调用
@@ -37,592 +71,1172 @@ import java.util.*;
 @Slf4j
 public class HttpMethod {
 
-    private static final String CALLBACK = "CALLBACK";
-    private static final String PROGRESS_LISTENER = "PROGRESS_LISTENER";
-    private static final String RESPONSE_HANDLER = "RESPONSE_HANDLER";
-    private static final String URL = "URL";
-    private static final String WEB_SOCKET_LISTENER = "WEB_SOCKET_LISTENER";
+    private static final String PUBLISHER_CLASS = "org.reactivestreams.Publisher";
+
+    private static final String MONO_CLASS = "reactor.core.publisher.Mono";
+
+    private static final String FLUX_CLASS = "reactor.core.publisher.Flux";
 
     private final Method method;
-    private final HttpProxy httpProxy;
     private final HttpMethodType httpMethodType;
-    private final List<ParameterType> parameterTypes = Lists.newArrayList();
+    /** 启动时解析好的请求对象，GET/HEAD/WS以外的请求需要发送请求体 */
+    private final AbstractHttp http;
+    /** 方法或者接口上@Endpoints对应的一组地址，没有时为null */
+    private final EndpointGroup endpointGroup;
+
+    private final boolean hasBody;
+    /** 每个参数对应的绑定器，bindIndexes记录绑定器对应的参数位置 */
+    private final ParameterBinder[] binders;
+
+    private final int[] bindIndexes;
+    /** 根据返回类型解析好的解码器 */
+    private final ResponseDecoder decoder;
 
-    public HttpMethod(Method method, HttpProxy httpProxy, HttpMethodType httpMethodType) {
+    private final ResultMode resultMode;
+    /** 返回值缓存，没有使用@Cached时为null */
+    private final ResponseCache responseCache;
+    /** 方法或者接口上@Timeout的超时策略，没有时为null，使用OkHttpClient的设置 */
+    private final TimeoutPolicy timeoutPolicy;
+    /** 方法上的重试策略，没有@Retry时为null，使用OkHttpClient工厂类的默认策略 */
+    private final RetryPolicy retryPolicy;
+    /** 对冲策略，没有@Hedge时为null */
+    private final HedgePolicy hedgePolicy;
+    /** 方法上的熔断策略，没有@CircuitBreaker时为null，使用OkHttpClient工厂类的默认策略 */
+    private final CircuitBreakerPolicy circuitBreakerPolicy;
+    /** 按照方法熔断时方法自己的熔断器，否则为null，按照主机熔断 */
+    private final Circuit circuit;
+    /** 熔断器打开时调用的实现，没有配置时为null */
+    private final Object fallback;
+    /** 方法上的限流策略，没有@RateLimit时为null，使用OkHttpClient工厂类的默认策略 */
+    private final RateLimitPolicy rateLimitPolicy;
+    /** 按照方法限流时方法自己的限流器，否则为null，按照主机限流 */
+    private final RateLimiter rateLimiter;
+    /** 方法或者接口上@Bulkhead对应的隔舱，没有时为null */
+    private final Compartment compartment;
+    /** 合并相同的请求，没有开启时为null */
+    private final SingleFlightGroup singleFlightGroup;
+    /** Publisher、Flux、Stream、Iterator逐个读取的元素类型，为null时响应解码成一个值 */
+    private final JavaType elementType;
+
+    public HttpMethod(Method method, HttpMethodType httpMethodType) {
         this.method = method;
-        this.httpProxy = httpProxy;
         this.httpMethodType = httpMethodType;
-        headleFieldAnnotation();
+        this.http = resolveHttp(httpMethodType);
+        this.endpointGroup = resolveEndpointGroup();
+        this.hasBody = !Objects.isNull(httpMethodType.getHandlerClass());
+        List<Integer> indexes = Lists.newArrayList();
+        List<ParameterBinder> binderList = Lists.newArrayList();
+        headleFieldAnnotation(indexes, binderList);
+        this.binders = binderList.toArray(new ParameterBinder[0]);
+        this.bindIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+        this.resultMode = resolveResultMode(method.getReturnType());
+        this.decoder =
+                Objects.equals(httpMethodType.getMethodType(), HttpMethodType.MethodType.WS)
+                        ? null
+                        : ResponseDecoders.resolve(resultType(method.getGenericReturnType()));
+        this.elementType = resolveElementType();
+        this.singleFlightGroup = resolveSingleFlight();
+        this.responseCache = resolveResponseCache();
+        this.timeoutPolicy = resolveTimeoutPolicy();
+        this.retryPolicy = resolveRetryPolicy();
+        this.hedgePolicy = resolveHedgePolicy();
+        this.circuitBreakerPolicy = resolveCircuitBreakerPolicy();
+        this.circuit = resolveCircuit();
+        this.fallback = resolveFallback();
+        this.rateLimitPolicy = resolveRateLimitPolicy();
+        this.rateLimiter = resolveRateLimiter();
+        this.compartment = resolveCompartment();
     }
 
-    /** 处理参数上的注解 */
-    private void headleFieldAnnotation() {
-        Parameter[] parameters = method.getParameters();
-        if (Objects.isNull(parameters) || parameters.length <= 0) {
-            return;
+    /**
+     * 根据返回类型决定返回结果的方式
+     *
+     * @param returnType
+     * @return
+     */
+    private static ResultMode resolveResultMode(Class<?> returnType) {
+        if (Objects.equals(returnType, CompletableFuture.class)) {
+            return ResultMode.FUTURE;
+        }
+        if (Objects.equals(returnType, Stream.class)) {
+            return ResultMode.STREAM;
+        }
+        if (Objects.equals(returnType, Iterator.class)) {
+            return ResultMode.ITERATOR;
+        }
+        // 按类名判断，没有引入reactive-streams、Reactor时不会加载相关的类
+        switch (returnType.getName()) {
+            case PUBLISHER_CLASS:
+                return ResultMode.PUBLISHER;
+            case MONO_CLASS:
+                return ResultMode.MONO;
+            case FLUX_CLASS:
+                return ResultMode.FLUX;
+            default:
+                return ResultMode.SYNC;
+        }
+    }
+
+    /**
+     * Publisher、Flux返回JSON类型时逐个读取元素，Stream、Iterator总是逐个读取元素
+     *
+     * @return
+     */
+    private JavaType resolveElementType() {
+        if (Objects.equals(resultMode, ResultMode.STREAM)
+                || Objects.equals(resultMode, ResultMode.ITERATOR)) {
+            if (decoder == ResponseDecoders.RESPONSE || decoder == ResponseDecoders.VOID) {
+                throw invalidSignature(
+                        method.getName() + "方法返回的Stream、Iterator元素类型不能是Response或Void");
+            }
+            // 元素按JSON逐个解析，String元素同样要求是JSON字符串
+            return JsonUtils.javaType(resultType(method.getGenericReturnType()));
+        }
+        if (!Objects.equals(resultMode, ResultMode.PUBLISHER)
+                && !Objects.equals(resultMode, ResultMode.FLUX)) {
+            return null;
+        }
+        if (ResponseDecoders.isBuiltin(decoder)) {
+            return null;
+        }
+        return JsonUtils.javaType(resultType(method.getGenericReturnType()));
+    }
+
+    /**
+     * 需要解码的类型，CompletableFuture<T>这类包装类型需要解码的是T
+     *
+     * @param genericReturnType
+     * @return
+     */
+    private Type resultType(Type genericReturnType) {
+        if (Objects.equals(resultMode, ResultMode.SYNC)) {
+            return genericReturnType;
+        }
+        if (genericReturnType instanceof ParameterizedType) {
+            return ((ParameterizedType) genericReturnType).getActualTypeArguments()[0];
+        }
+        return Object.class;
+    }
+
+    /**
+     * 方法上的@SingleFlight优先，没有的话由OkHttpClient工厂类决定，只有同步和CompletableFuture的GET、HEAD请求才能合并
+     *
+     * @return
+     */
+    private SingleFlightGroup resolveSingleFlight() {
+        SingleFlight singleFlight = method.getDeclaredAnnotation(SingleFlight.class);
+        HttpMethodType.MethodType methodType = httpMethodType.getMethodType();
+        boolean idempotent =
+                Objects.equals(methodType, HttpMethodType.MethodType.GET)
+                        || Objects.equals(methodType, HttpMethodType.MethodType.HEAD);
+        if (Objects.isNull(singleFlight)) {
+            return idempotent
+                            && httpMethodType.getOkHttpClientFactory().singleFlight()
+                            && !isStreaming()
+                    ? new SingleFlightGroup()
+                    : null;
+        }
+        if (!singleFlight.value()) {
+            return null;
+        }
+        if (!idempotent) {
+            throw invalidSignature(method.getName() + "方法只有@Get、@Head请求才能使用@SingleFlight");
+        }
+        if (isStreaming()) {
+            log.warn(method.getName() + "方法逐个读取响应体，不会合并请求");
+            return null;
+        }
+        return new SingleFlightGroup();
+    }
+
+    /**
+     * 解析@Cached，只有同步和CompletableFuture的GET、HEAD请求才能缓存，而且返回值不能是需要关闭的资源
+     *
+     * @return
+     */
+    private ResponseCache resolveResponseCache() {
+        Cached cached = method.getDeclaredAnnotation(Cached.class);
+        if (Objects.isNull(cached)) {
+            return null;
         }
+        String methodName = method.getName();
+        HttpMethodType.MethodType methodType = httpMethodType.getMethodType();
+        if (!Objects.equals(methodType, HttpMethodType.MethodType.GET)
+                && !Objects.equals(methodType, HttpMethodType.MethodType.HEAD)) {
+            throw invalidSignature(methodName + "方法只有@Get、@Head请求才能使用@Cached");
+        }
+        if (isStreaming()) {
+            throw invalidSignature(methodName + "方法逐个读取响应体，不能使用@Cached");
+        }
+        if (decoder == ResponseDecoders.RESPONSE
+                || decoder == ResponseDecoders.VOID
+                || decoder == ResponseDecoders.INPUT_STREAM
+                || decoder == ResponseDecoders.BUFFERED_SOURCE
+                || decoder == ResponseDecoders.BYTE_BUFFER
+                || decoder == ResponseDecoders.PATH) {
+            throw invalidSignature(methodName + "方法的返回类型不能缓存");
+        }
+        if (cached.ttl() <= 0 || cached.maxBytes() <= 0) {
+            throw invalidSignature(methodName + "方法@Cached的ttl和maxBytes必须大于0");
+        }
+        if (cached.refreshAfter() >= cached.ttl()) {
+            throw invalidSignature(methodName + "方法@Cached的refreshAfter必须小于ttl");
+        }
+        return ResponseCache.create(methodKey(), cached);
+    }
+
+    /**
+     * 解析方法和接口上的@Timeout，WebSocket不经过拦截器，不支持@Timeout
+     *
+     * @return
+     */
+    private TimeoutPolicy resolveTimeoutPolicy() {
+        TimeoutPolicy policy =
+                TimeoutPolicy.of(
+                        method.getDeclaredAnnotation(Timeout.class),
+                        method.getDeclaringClass().getDeclaredAnnotation(Timeout.class));
+        if (!Objects.isNull(policy)
+                && Objects.equals(httpMethodType.getMethodType(), HttpMethodType.MethodType.WS)) {
+            log.warn(method.getName() + "方法是WebSocket请求，不使用@Timeout");
+            return null;
+        }
+        return policy;
+    }
+
+    /**
+     * 解析@Retry
+     *
+     * @return
+     */
+    private RetryPolicy resolveRetryPolicy() {
+        Retry retry = method.getDeclaredAnnotation(Retry.class);
+        if (Objects.isNull(retry)) {
+            return null;
+        }
+        RetryPolicy policy = RetryPolicy.of(retry);
+        if (!policy.canRetry(httpMethodType.getMethodType().name())) {
+            log.warn(method.getName() + "方法的请求不是幂等的，没有设置nonIdempotent时不会重试");
+        }
+        return policy;
+    }
+
+    /**
+     * 解析@Hedge，Publisher这类结果由订阅者控制请求，不支持对冲
+     *
+     * @return
+     */
+    private HedgePolicy resolveHedgePolicy() {
+        Hedge hedge = method.getDeclaredAnnotation(Hedge.class);
+        if (Objects.isNull(hedge)) {
+            return null;
+        }
+        String methodName = method.getName();
+        HedgePolicy policy = HedgePolicy.of(hedge);
+        if (!policy.canHedge(httpMethodType.getMethodType().name())) {
+            throw invalidSignature(methodName + "方法的请求不是幂等的，不能使用@Hedge");
+        }
+        if (isReactive()) {
+            throw invalidSignature(methodName + "方法返回Publisher时不能使用@Hedge");
+        }
+        return policy;
+    }
+
+    /**
+     * 解析@CircuitBreaker
+     *
+     * @return
+     */
+    private CircuitBreakerPolicy resolveCircuitBreakerPolicy() {
+        CircuitBreaker circuitBreaker = method.getDeclaredAnnotation(CircuitBreaker.class);
+        if (Objects.isNull(circuitBreaker)) {
+            return null;
+        }
+        return CircuitBreakerPolicy.of(circuitBreaker);
+    }
+
+    /**
+     * 按照方法熔断时创建方法自己的熔断器，同样注册在OkHttpClient工厂类中方便查看状态
+     *
+     * @return
+     */
+    private Circuit resolveCircuit() {
+        CircuitBreaker circuitBreaker = method.getDeclaredAnnotation(CircuitBreaker.class);
+        if (Objects.isNull(circuitBreaker) || !circuitBreaker.perMethod()) {
+            return null;
+        }
+        return httpMethodType
+                .getOkHttpClientFactory()
+                .circuitBreakers()
+                .circuit(methodKey(), circuitBreakerPolicy);
+    }
+
+    /**
+     * 创建@CircuitBreaker指定的fallback，必须实现方法所在的接口
+     *
+     * @return
+     */
+    private Object resolveFallback() {
+        CircuitBreaker circuitBreaker = method.getDeclaredAnnotation(CircuitBreaker.class);
+        if (Objects.isNull(circuitBreaker)
+                || Objects.equals(circuitBreaker.fallback(), void.class)) {
+            return null;
+        }
+        String methodName = method.getName();
+        Class<?> fallbackClass = circuitBreaker.fallback();
+        Class<?> httpInterface = method.getDeclaringClass();
+        if (!httpInterface.isAssignableFrom(fallbackClass)) {
+            throw invalidSignature(methodName + "方法的fallback必须实现" + httpInterface.getName());
+        }
+        try {
+            return fallbackClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw invalidSignature(methodName + "方法的fallback无法创建：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 解析@RateLimit
+     *
+     * @return
+     */
+    private RateLimitPolicy resolveRateLimitPolicy() {
+        RateLimit rateLimit = method.getDeclaredAnnotation(RateLimit.class);
+        if (Objects.isNull(rateLimit)) {
+            return null;
+        }
+        return RateLimitPolicy.of(rateLimit);
+    }
+
+    /**
+     * 按照方法限流时创建方法自己的限流器，同样注册在OkHttpClient工厂类中方便查看状态
+     *
+     * @return
+     */
+    private RateLimiter resolveRateLimiter() {
+        RateLimit rateLimit = method.getDeclaredAnnotation(RateLimit.class);
+        if (Objects.isNull(rateLimit) || !rateLimit.perMethod()) {
+            return null;
+        }
+        return httpMethodType
+                .getOkHttpClientFactory()
+                .rateLimiters()
+                .limiter(methodKey(), rateLimitPolicy);
+    }
+
+    /**
+     * 解析@Bulkhead，方法上的注解优先，接口上的注解由接口的所有方法共享一个隔舱
+     *
+     * @return
+     */
+    private Compartment resolveCompartment() {
+        Class<?> httpInterface = method.getDeclaringClass();
+        Bulkhead bulkhead = method.getDeclaredAnnotation(Bulkhead.class);
+        String name = methodKey();
+        if (Objects.isNull(bulkhead)) {
+            bulkhead = httpInterface.getDeclaredAnnotation(Bulkhead.class);
+            name = httpInterface.getName();
+        }
+        if (Objects.isNull(bulkhead)
+                || Objects.equals(httpMethodType.getMethodType(), HttpMethodType.MethodType.WS)) {
+            return null;
+        }
+        if (isReactive()) {
+            log.warn(method.getName() + "方法返回Publisher，不在隔舱中执行");
+            return null;
+        }
+        return Compartment.create(name, bulkhead);
+    }
+
+    /**
+     * 方法在缓存、熔断器、限流器、隔舱这些注册表中的名称，包含参数类型，重载的方法互不影响
+     *
+     * @return
+     */
+    private String methodKey() {
+        StringJoiner parameterTypes = new StringJoiner(",", "(", ")");
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            parameterTypes.add(parameterType.getTypeName());
+        }
+        return method.getDeclaringClass().getName() + "." + method.getName() + parameterTypes;
+    }
+
+    /**
+     * 返回结果是否由订阅者控制请求
+     *
+     * @return
+     */
+    private boolean isReactive() {
+        return Objects.equals(resultMode, ResultMode.PUBLISHER)
+                || Objects.equals(resultMode, ResultMode.MONO)
+                || Objects.equals(resultMode, ResultMode.FLUX);
+    }
+
+    /**
+     * 返回结果是否需要边读边处理响应体
+     *
+     * @return
+     */
+    private boolean isStreaming() {
+        return !Objects.equals(resultMode, ResultMode.SYNC)
+                && !Objects.equals(resultMode, ResultMode.FUTURE);
+    }
+
+    /**
+     * 根据请求方式获取对应的Http
+     *
+     * @param httpMethodType
+     * @return
+     */
+    private static AbstractHttp resolveHttp(HttpMethodType httpMethodType) {
+        BaseOkHttpClientFactory okHttpClientFactory = httpMethodType.getOkHttpClientFactory();
+        switch (httpMethodType.getMethodType()) {
+            case GET:
+                return HttpUtils.getHttp(okHttpClientFactory);
+            case HEAD:
+                return HttpUtils.headHttp(okHttpClientFactory);
+            case POST:
+                return HttpUtils.postHttp(okHttpClientFactory);
+            case PUT:
+                return HttpUtils.putHttp(okHttpClientFactory);
+            case DELETE:
+                return HttpUtils.deleteHttp(okHttpClientFactory);
+            case PATCH:
+                return HttpUtils.patchHttp(okHttpClientFactory);
+            default:
+                return HttpUtils.webSocket(okHttpClientFactory);
+        }
+    }
+
+    /**
+     * 解析@Endpoints，方法上的注解优先
+     *
+     * @return
+     */
+    private EndpointGroup resolveEndpointGroup() {
+        Endpoints endpoints = method.getDeclaredAnnotation(Endpoints.class);
+        if (Objects.isNull(endpoints)) {
+            endpoints = method.getDeclaringClass().getDeclaredAnnotation(Endpoints.class);
+        }
+        if (Objects.isNull(endpoints)) {
+            return null;
+        }
+        return httpMethodType.getOkHttpClientFactory().endpoints().group(endpoints.value());
+    }
+
+    /**
+     * 处理参数上的注解，为每个参数编译绑定器并校验方法签名
+     *
+     * @param indexes
+     * @param binderList
+     */
+    private void headleFieldAnnotation(List<Integer> indexes, List<ParameterBinder> binderList) {
+        String methodName = method.getName();
+        Parameter[] parameters = method.getParameters();
+        Set<Class<?>> specialTypes = Sets.newHashSet();
+        boolean hasShardKey = false;
         for (int i = 0; i < parameters.length; i++) {
             Parameter parameter = parameters[i];
             Class<?> type = parameter.getType();
+            ParameterBinder specialBinder = specialBinder(type);
+            if (!Objects.isNull(specialBinder)) {
+                if (!specialTypes.add(type)) {
+                    throw invalidSignature(methodName + "方法存在多个" + type.getSimpleName() + "参数");
+                }
+                addBinder(indexes, binderList, i, specialBinder);
+                continue;
+            }
             Header header = parameter.getDeclaredAnnotation(Header.class);
             Field field = parameter.getDeclaredAnnotation(Field.class);
             Url url = parameter.getDeclaredAnnotation(Url.class);
-            // 没有Header和Field注解
-            if (Objects.isNull(header) && Objects.isNull(field) && Objects.isNull(url)) {
-                parameterTypes.add(
-                        newParameterType(
-                                i, type, StringUtils.EMPTY, ParameterType.ParameterPart.NONE));
+            if (!Objects.isNull(parameter.getDeclaredAnnotation(ShardKey.class))) {
+                if (hasShardKey) {
+                    throw invalidSignature(methodName + "方法存在多个@ShardKey参数");
+                }
+                if (Objects.isNull(endpointGroup)) {
+                    throw invalidSignature(methodName + "方法需要配置@Endpoints才能使用@ShardKey");
+                }
+                hasShardKey = true;
+                addBinder(indexes, binderList, i, ParameterBinders.SHARD_KEY);
+                boolean simple = ClassUtils.isSimpleType(type) || type.isPrimitive();
+                if (simple
+                        && Objects.isNull(header)
+                        && Objects.isNull(field)
+                        && Objects.isNull(url)) {
+                    // 没有其他注解的简单类型用参数名作为请求参数的key
+                    if (parameter.isNamePresent()) {
+                        addBinder(indexes, binderList, i, fieldBinder(type, parameter.getName()));
+                    } else {
+                        log.warn(methodName + "方法编译时没有保留参数名，@ShardKey参数只用于选择地址");
+                    }
+                    continue;
+                }
             }
             // Header注解
             if (!Objects.isNull(header)) {
-                parameterTypes.add(
-                        newParameterType(
-                                i, type, header.value(), ParameterType.ParameterPart.HEADER));
+                addBinder(indexes, binderList, i, headerBinder(type, header.value()));
             }
-            // Field注解
-            if (!Objects.isNull(field)) {
-                parameterTypes.add(
-                        newParameterType(
-                                i, type, field.value(), ParameterType.ParameterPart.FIELD));
+            // Field注解，没有任何注解的参数也当作Field处理
+            if (!Objects.isNull(field) || (Objects.isNull(header) && Objects.isNull(url))) {
+                String key = Objects.isNull(field) ? StringUtils.EMPTY : field.value();
+                addBinder(indexes, binderList, i, fieldBinder(type, key));
             }
             if (!Objects.isNull(url)) {
-                parameterTypes.add(
-                        newParameterType(
-                                i, type, StringUtils.EMPTY, ParameterType.ParameterPart.URL));
+                if (!ClassUtils.isString(type)) {
+                    throw invalidSignature(methodName + "方法@Url指定的类型必须是String类型");
+                }
+                addBinder(indexes, binderList, i, ParameterBinders.URL);
             }
         }
+        validateReturnType(specialTypes);
     }
 
     /**
-     * 创建ParameterType
+     * 添加绑定器
      *
+     * @param indexes
+     * @param binderList
      * @param index
+     * @param binder
+     */
+    private static void addBinder(
+            List<Integer> indexes,
+            List<ParameterBinder> binderList,
+            int index,
+            ParameterBinder binder) {
+        if (Objects.isNull(binder)) {
+            return;
+        }
+        indexes.add(index);
+        binderList.add(binder);
+    }
+
+    /**
+     * Callback这类特殊参数的绑定器
+     *
      * @param type
-     * @param key
-     * @param parameterPart
      * @return
      */
-    private ParameterType newParameterType(
-            int index, Class<?> type, String key, ParameterType.ParameterPart parameterPart) {
-        ParameterType parameterType = new ParameterType();
-        parameterType.setIndex(index);
-        parameterType.setType(type);
-        parameterType.setKey(key);
-        parameterType.setParameterPart(parameterPart);
-        return parameterType;
+    private static ParameterBinder specialBinder(Class<?> type) {
+        if (Objects.equals(type, Callback.class)) {
+            return ParameterBinders.CALLBACK;
+        }
+        if (Objects.equals(type, ProgressListener.class)) {
+            return ParameterBinders.PROGRESS_LISTENER;
+        }
+        if (Objects.equals(type, ResponseHandler.class)) {
+            return ParameterBinders.RESPONSE_HANDLER;
+        }
+        if (Objects.equals(type, WebSocketListener.class)) {
+            return ParameterBinders.WEB_SOCKET_LISTENER;
+        }
+        return null;
     }
 
     /**
-     * 执行具体的方法
+     * 请求头参数的绑定器
      *
-     * @param args
+     * @param type
+     * @param key
      * @return
-     * @throws Throwable
      */
-    public Object execute(Object[] args) throws Throwable {
-        if (Objects.isNull(httpMethodType)) {
-            return null;
+    private ParameterBinder headerBinder(Class<?> type, String key) {
+        if (!StringUtils.isBlank(key)) {
+            return ParameterBinders.header(key);
         }
-        Map<String, Object> params = Maps.newHashMap();
-        Map<String, File[]> files = Maps.newHashMap();
-        Map<String, String> headers = Maps.newHashMap();
-        // 可能包含params和files
-        Map<String, Object> data = Maps.newHashMap();
-        // 处理所有的ParameterType
-        Map<String, Object> handlers = handleAllParameterType(args, headers, data);
-        // 处理准备好的请求数据，把简单数据和文件分开
-        handleData(data, params, files);
-
-        Callback callback = (Callback) handlers.get(CALLBACK);
-        ProgressListener progressListener = (ProgressListener) handlers.get(PROGRESS_LISTENER);
-        ResponseHandler responseHandler = (ResponseHandler) handlers.get(RESPONSE_HANDLER);
-        String url = CastUtils.castString(handlers.get(URL));
-
-        HttpMethodType.MethodType methodType = httpMethodType.getMethodType();
-
-        Object result = null;
-        if (Objects.equals(methodType, HttpMethodType.MethodType.GET)) {
-            // get请求
-            result = handleGetHttp(url, headers, params, files, callback, progressListener);
-        } else if (Objects.equals(methodType, HttpMethodType.MethodType.HEAD)) {
-            // head请求
-            result = handleHeadHttp(url, headers, params, files, callback, progressListener);
-        } else if (Objects.equals(methodType, HttpMethodType.MethodType.POST)) {
-            // post请求
-            result = handlePostHttp(url, headers, params, files, callback, progressListener);
-        } else if (Objects.equals(methodType, HttpMethodType.MethodType.PUT)) {
-            // put请求
-            result = handlePutHttp(url, headers, params, files, callback, progressListener);
-        } else if (Objects.equals(methodType, HttpMethodType.MethodType.PATCH)) {
-            // patch请求
-            result = handlePatchHttp(url, headers, params, files, callback, progressListener);
-        } else if (Objects.equals(methodType, HttpMethodType.MethodType.DELETE)) {
-            // delete请求
-            result = handleDeleteHttp(url, headers, params, files, callback, progressListener);
-        } else if (Objects.equals(methodType, HttpMethodType.MethodType.WS)) {
-            // websocket
-            WebSocketListener listener = (WebSocketListener) handlers.get(WEB_SOCKET_LISTENER);
-            result = handleWebSocket(url, listener);
+        if (ClassUtils.isSimpleType(type) || type.isPrimitive()) {
+            throw invalidSignature(method.getName() + "方法的Header参数缺少指定的key值");
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return ParameterBinders.HEADER_MAP;
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            log.warn(method.getName() + "方法不支持没注解的" + type.getName() + "类型");
+            return null;
         }
-        return handleResult(result, responseHandler);
+        return ParameterBinders.HEADER_OBJECT;
     }
 
     /**
-     * 处理Websocket方法
+     * 请求参数的绑定器，GET/HEAD拼接在url上，其他请求放在请求体中
      *
-     * @param url
-     * @param listener
+     * @param type
+     * @param key
      * @return
      */
-    private WebSocket handleWebSocket(String url, WebSocketListener listener) {
-        String realUrl = StringUtils.isBlank(url) ? httpMethodType.getUrl() : url;
-        if (StringUtils.isBlank(realUrl)) {
-            throw new IllegalArgumentException("请求url不能为空");
+    private ParameterBinder fieldBinder(Class<?> type, String key) {
+        if (!hasBody && (ClassUtils.isFile(type) || ClassUtils.isFileArray(type))) {
+            log.warn(method.getName() + "方法的请求不支持上传文件");
         }
-        if (Objects.isNull(listener)) {
-            throw new IllegalArgumentException("需要设置一个WebSocketListener");
+        if (!StringUtils.isBlank(key)) {
+            return ParameterBinders.field(key, type);
         }
-        BaseOkHttpClientFactory okHttpClientFactory = httpMethodType.getOkHttpClientFactory();
-        return HttpUtils.newWebSocket(okHttpClientFactory, realUrl, listener);
+        if (ClassUtils.isSimpleType(type) || type.isPrimitive()) {
+            throw invalidSignature(method.getName() + "方法的Field参数缺少指定的key值");
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return ParameterBinders.FIELD_MAP;
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            log.warn(method.getName() + "方法不支持没注解的" + type.getName() + "类型");
+            return null;
+        }
+        return ParameterBinders.FIELD_OBJECT;
     }
 
     /**
-     * 处理响应
+     * 启动时校验返回类型，避免在调用时才发现错误
      *
-     * @param result
-     * @param responseHandler
-     * @return
-     * @throws IOException
+     * @param specialTypes
      */
-    private Object handleResult(Object result, ResponseHandler responseHandler) throws Exception {
-        Class<?> returnType = method.getReturnType();
+    private void validateReturnType(Set<Class<?>> specialTypes) {
         String methodName = method.getName();
-        // 如果是wensocket
+        Class<?> returnType = method.getReturnType();
+        if (Objects.equals(httpMethodType.getMethodType(), HttpMethodType.MethodType.WS)) {
+            if (!specialTypes.contains(WebSocketListener.class)) {
+                throw invalidSignature(methodName + "方法需要设置一个WebSocketListener");
+            }
+            if (!Objects.equals(returnType, WebSocket.class)) {
+                throw invalidSignature(methodName + "方法的返回类型必须是WebSocket");
+            }
+            return;
+        }
         if (Objects.equals(returnType, WebSocket.class)) {
-            if (result instanceof WebSocket) {
-                return result;
-            } else {
-                String logstr = methodName + "方法的返回类型和真实返回值类型不同";
-                log.error(logstr);
-                throw new IllegalArgumentException(logstr);
+            throw invalidSignature(methodName + "方法需要使用@Ws注解才能返回WebSocket");
+        }
+        if (!hasBody && specialTypes.contains(ProgressListener.class)) {
+            log.warn(methodName + "方法的请求不支持监听器");
+        }
+        if (specialTypes.contains(Callback.class)) {
+            if (!Objects.equals(returnType, void.class)) {
+                throw invalidSignature(methodName + "方法使用Callback时返回类型必须是void");
             }
         }
-        /** 如果返回类型是Response */
-        if (Objects.equals(returnType, Response.class)) {
-            if (!(result instanceof Response)) {
-                String logstr = methodName + "方法的返回类型和真实返回值类型不同";
-                log.error(logstr);
-                throw new IllegalArgumentException(logstr);
+    }
+
+    /**
+     * 方法签名不合法
+     *
+     * @param logstr
+     * @return
+     */
+    private IllegalArgumentException invalidSignature(String logstr) {
+        String message = method.getDeclaringClass().getName() + "." + logstr;
+        log.error(message);
+        return new IllegalArgumentException(message);
+    }
+
+    /**
+     * 执行具体的方法
+     *
+     * @param args
+     * @return
+     * @throws Throwable
+     */
+    public Object execute(Object[] args) throws Throwable {
+        HttpInvocation invocation = new HttpInvocation();
+        for (int i = 0; i < binders.length; i++) {
+            Object arg = args[bindIndexes[i]];
+            if (!Objects.isNull(arg)) {
+                binders[i].bind(invocation, arg);
             }
-            return result;
         }
-        /** 如果返回类型是void，result是Response类型，需要先关闭Response，直接返回null */
-        if (Objects.equals(returnType, void.class) && result instanceof Response) {
-            Response response = (Response) result;
-            response.close();
+        if (!Objects.isNull(fallback)) {
+            invocation.setArguments(args);
+        }
+        return execute(invocation);
+    }
+
+    /**
+     * 执行已经绑定好参数的请求
+     *
+     * @param invocation
+     * @return
+     * @throws Throwable
+     */
+    public Object execute(HttpInvocation invocation) throws Throwable {
+        if (Objects.equals(httpMethodType.getMethodType(), HttpMethodType.MethodType.WS)) {
+            // websocket
+            return handleWebSocket(invocation);
+        }
+        Request request = newRequest(invocation);
+        Callback callback = invocation.getCallback();
+        if (!Objects.isNull(callback)) {
+            // 异步请求由Callback处理响应
+            newCall(request).enqueue(fallbackCallback(callback, invocation));
             return null;
         }
-        // 如果是其他类型，需要自定义处理器
-        Response response = null;
-        try {
-            response = (Response) result;
-            if (Objects.equals(returnType, String.class)) {
-                if (response.isSuccessful()) {
-                    return response.body().string();
-                }
-                String message = response.message();
-                log.error(message);
-                throw new Exception(message);
+        ResponseHandler responseHandler = invocation.getResponseHandler();
+        ResponseDecoder responseDecoder = responseDecoder(responseHandler);
+        if (!Objects.isNull(responseCache) && Objects.isNull(responseHandler)) {
+            // 自定义ResponseHandler的结果不缓存
+            String key = responseCache.key(request);
+            ResponseDecoder cachingDecoder = cachingDecoder(key, responseDecoder);
+            Object cached = responseCache.get(key, k -> refresh(request, cachingDecoder));
+            if (!Objects.isNull(cached)) {
+                return Objects.equals(resultMode, ResultMode.FUTURE)
+                        ? CompletableFuture.completedFuture(cached)
+                        : cached;
             }
-            if (Objects.isNull(responseHandler)) {
-                String logstr = "需要指定一个ResponseHandler处理返回的Response";
-                log.error(logstr);
-                throw new IllegalArgumentException(logstr);
+            responseDecoder = cachingDecoder;
+        }
+        if (isReactive()) {
+            // 自定义ResponseHandler时只发送处理后的一个值，熔断由订阅时的请求判断
+            return ReactiveResults.create(
+                    resultMode,
+                    http,
+                    request,
+                    responseDecoder,
+                    Objects.isNull(responseHandler) ? elementType : null);
+        }
+        Circuit openCircuit = openCircuit(request);
+        if (!Objects.isNull(openCircuit)) {
+            // 熔断器打开时不发送请求
+            return circuitOpen(openCircuit, invocation);
+        }
+        if (Objects.equals(resultMode, ResultMode.STREAM)
+                || Objects.equals(resultMode, ResultMode.ITERATOR)) {
+            return handleElements(newCall(request).execute(), responseHandler);
+        }
+        if (Objects.equals(resultMode, ResultMode.FUTURE)) {
+            if (!Objects.isNull(singleFlightGroup)) {
+                return fallbackFuture(enqueueSingleFlight(request, responseDecoder), invocation);
             }
-            return responseHandler.handle(response);
-        } finally {
-            if (!Objects.isNull(response)) {
-                response.close();
+            CallFuture<Object> future = new CallFuture<>(responseDecoder);
+            Call call = newCall(request);
+            future.setCall(call);
+            call.enqueue(future);
+            return fallbackFuture(future, invocation);
+        }
+        try {
+            if (!Objects.isNull(singleFlightGroup)) {
+                return executeSingleFlight(request, responseDecoder);
+            }
+            return responseDecoder.decode(newCall(request).execute());
+        } catch (CircuitOpenException e) {
+            // 检查之后熔断器才打开
+            if (Objects.isNull(fallback)) {
+                throw e;
             }
+            return fallback(invocation);
         }
     }
 
-    @Data
-    private static class ParameterType {
-        private String methodName;
-        private int index;
-        private String key;
-        private Class<?> type;
-        private ParameterPart parameterPart;
-
-        enum ParameterPart {
-            HEADER,
-            FIELD,
-            URL,
-            NONE
+    /**
+     * 请求对应的熔断器是否已经打开
+     *
+     * @param request
+     * @return 已经打开的熔断器，没有打开时返回null
+     */
+    private Circuit openCircuit(Request request) {
+        if (!Objects.isNull(endpointGroup) && Objects.isNull(circuit)) {
+            // 按照主机熔断时请求的地址还没有选定，由拦截器判断
+            return null;
         }
+        Circuit current =
+                httpMethodType.getOkHttpClientFactory().circuitBreakers().circuit(request);
+        if (Objects.isNull(current) || current.isCallPermitted()) {
+            return null;
+        }
+        return current;
     }
 
     /**
-     * 处理准备好的请求数据，把简单数据和文件分开
+     * 熔断器打开时调用fallback，没有fallback时直接失败，CompletableFuture以异常结束
      *
-     * @param data
-     * @param params
-     * @param files
+     * @param openCircuit
+     * @param invocation
+     * @return
+     * @throws Throwable
      */
-    private void handleData(
-            Map<String, Object> data, Map<String, Object> params, Map<String, File[]> files) {
-        if (CollectionUtils.isEmpty(data)) {
-            return;
+    private Object circuitOpen(Circuit openCircuit, HttpInvocation invocation) throws Throwable {
+        if (!Objects.isNull(fallback)) {
+            return fallback(invocation);
         }
-        data.forEach(
-                (k, v) -> {
-                    Class<?> clazz = v.getClass();
-                    if (ClassUtils.isFile(clazz)) {
-                        files.put(k, new File[] {(File) v});
-                    } else if (ClassUtils.isFileArray(clazz)) {
-                        files.put(k, (File[]) v);
-                    } else {
-                        params.put(k, v);
-                    }
-                });
+        CircuitOpenException exception = new CircuitOpenException(openCircuit.getName());
+        if (Objects.equals(resultMode, ResultMode.FUTURE)) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.completeExceptionally(exception);
+            return future;
+        }
+        throw exception;
     }
 
     /**
-     * 将请求参数和请求头数据封装成ParameterType列表
+     * 拦截器发现熔断器打开时，CompletableFuture改为使用fallback的结果，取消返回的Future时同样取消请求
      *
-     * @param args
-     * @param headers
-     * @param data
+     * @param future
+     * @param invocation
+     * @return
      */
-    private Map<String, Object> handleAllParameterType(
-            Object[] args, Map<String, String> headers, Map<String, Object> data)
-            throws IllegalAccessException {
-
-        Map<String, Object> handlers = Maps.newHashMap();
-        String methodName = method.getName();
-        // 检查header
-        for (ParameterType parameterType : parameterTypes) {
-            ParameterType.ParameterPart parameterPart = parameterType.getParameterPart();
-
-            Class<?> type = parameterType.getType();
-            int index = parameterType.getIndex();
-            Object arg = args[index];
-            if (Objects.isNull(arg)) {
-                continue;
-            }
-            if (Objects.equals(type, Callback.class)) {
-                Object callbackObject = handlers.get(CALLBACK);
-                if (Objects.isNull(callbackObject)) {
-                    handlers.put(CALLBACK, arg);
-                } else {
-                    log.warn("存在多个Callback，只有最后一个会生效");
-                }
-                continue;
-            }
-            if (Objects.equals(type, ProgressListener.class)) {
-                Object progressListener = handlers.get(PROGRESS_LISTENER);
-                if (Objects.isNull(progressListener)) {
-                    handlers.put(PROGRESS_LISTENER, arg);
-                } else {
-                    log.warn("存在多个ProgressListener，只有最后一个会生效");
-                }
-                continue;
-            }
-            if (Objects.equals(type, ResponseHandler.class)) {
-                Object responseHandler = handlers.get(RESPONSE_HANDLER);
-                if (Objects.isNull(responseHandler)) {
-                    handlers.put(RESPONSE_HANDLER, arg);
-                } else {
-                    log.warn("存在多个ResponseHandler，只有最后一个会生效");
-                }
-                continue;
-            }
-            if (Objects.equals(type, WebSocketListener.class)) {
-                Object webSocketListener = handlers.get(WEB_SOCKET_LISTENER);
-                if (Objects.isNull(webSocketListener)) {
-                    handlers.put(WEB_SOCKET_LISTENER, arg);
-                } else {
-                    log.warn("存在多个WebSocketListener，只有最后一个会生效");
-                }
-                continue;
-            }
-            if (Objects.equals(parameterPart, ParameterType.ParameterPart.HEADER)) {
-                String key = parameterType.getKey();
-                if (StringUtils.isBlank(key)) {
-                    if (ClassUtils.isSimpleType(type)) {
-                        String logstr = methodName + "方法的Header参数缺少指定的key值";
-                        log.error(logstr);
-                        throw new IllegalArgumentException(logstr);
+    private CompletableFuture<Object> fallbackFuture(
+            CompletableFuture<Object> future, HttpInvocation invocation) {
+        if (Objects.isNull(fallback)) {
+            return future;
+        }
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        future.whenComplete(
+                (value, e) -> {
+                    if (Objects.isNull(e)) {
+                        result.complete(value);
+                        return;
                     }
-                    if (Objects.equals(type, Map.class)) {
-                        Map<String, String> map = (Map<String, String>) arg;
-                        headers.putAll(map);
-                    } else if (Objects.equals(type, Collection.class)) {
-                        log.warn(methodName + "方法不支持没注解的" + type.getName() + "类型");
-                    } else {
-                        handleObject(arg, data, headers, handlers, false);
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (!(cause instanceof CircuitOpenException)) {
+                        result.completeExceptionally(cause);
+                        return;
                     }
-                } else {
-                    headers.put(key, CastUtils.castString(arg));
-                }
-            } else if (Objects.equals(parameterPart, ParameterType.ParameterPart.FIELD)
-                    || Objects.equals(parameterPart, ParameterType.ParameterPart.NONE)) {
-                String key = parameterType.getKey();
-                if (StringUtils.isBlank(key)) {
-                    if (ClassUtils.isSimpleType(type)) {
-                        String logstr = methodName + "方法的Field参数缺少指定的key值";
-                        log.error(logstr);
-                        throw new IllegalArgumentException(logstr);
+                    try {
+                        CompletableFuture<?> fallbackFuture =
+                                (CompletableFuture<?>) fallback(invocation);
+                        if (Objects.isNull(fallbackFuture)) {
+                            result.complete(null);
+                            return;
+                        }
+                        fallbackFuture.whenComplete(
+                                (fallbackValue, ex) -> {
+                                    if (Objects.isNull(ex)) {
+                                        result.complete(fallbackValue);
+                                    } else {
+                                        result.completeExceptionally(ex);
+                                    }
+                                });
+                    } catch (Throwable ex) {
+                        result.completeExceptionally(ex);
                     }
-                    if (Objects.equals(type, Map.class)) {
-                        Map<String, Object> map = (Map<String, Object>) arg;
-                        data.putAll(map);
-                    } else if (Objects.equals(type, Collection.class)) {
-                        log.warn(methodName + "方法不支持没注解的" + type.getName() + "类型");
-                    } else {
-                        handleObject(arg, data, headers, handlers, true);
+                });
+        result.whenComplete(
+                (value, e) -> {
+                    if (result.isCancelled()) {
+                        future.cancel(true);
                     }
-                } else {
-                    data.put(key, args[index]);
-                }
-            } else if (Objects.equals(parameterPart, ParameterType.ParameterPart.URL)) {
-                if (ClassUtils.isString(type)) {
-                    handlers.put(URL, arg);
-                } else {
-                    log.warn(methodName + "方法@Url指定的类型必须是String类型");
-                }
-            }
+                });
+        return result;
+    }
+
+    /**
+     * 拦截器发现熔断器打开时，Callback的方法改为调用fallback，由fallback负责通知Callback
+     *
+     * @param callback
+     * @param invocation
+     * @return
+     */
+    private Callback fallbackCallback(Callback callback, HttpInvocation invocation) {
+        if (Objects.isNull(fallback)) {
+            return callback;
         }
-        return handlers;
-    }
-
-    /**
-     * 处理自定义对象
-     *
-     * @param arg
-     * @param data
-     * @param header
-     */
-    private void handleObject(
-            Object arg,
-            Map<String, Object> data,
-            Map<String, String> header,
-            Map<String, Object> handlers,
-            boolean isField)
-            throws IllegalAccessException {
-        Class<?> clazz = arg.getClass();
-        java.lang.reflect.Field[] fields = clazz.getDeclaredFields();
-        for (java.lang.reflect.Field field : fields) {
-            field.setAccessible(true);
-            String name = field.getName();
-            Object value = field.get(arg);
-            if (field.isAnnotationPresent(Field.class)) {
-                Field f = field.getDeclaredAnnotation(Field.class);
-                String key = f.value();
-                if (!StringUtils.isBlank(f.value())) {
-                    name = key;
-                }
-                data.put(name, value);
-            } else if (field.isAnnotationPresent(Header.class)) {
-                Header h = field.getDeclaredAnnotation(Header.class);
-                String key = h.value();
-                if (!StringUtils.isBlank(h.value())) {
-                    name = key;
+        return new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (!(e instanceof CircuitOpenException)) {
+                    callback.onFailure(call, e);
+                    return;
                 }
-                header.put(name, CastUtils.castString(value));
-            } else if (field.isAnnotationPresent(Url.class)) {
-                if (ClassUtils.isString(field.getType())) {
-                    handlers.put(URL, value);
-                } else {
-                    log.warn(name + "字段被@Url注解必须要是String类型");
-                }
-            } else {
-                if (isField) {
-                    data.put(name, value);
-                } else {
-                    header.put(name, CastUtils.castString(value));
+                try {
+                    fallback(invocation);
+                } catch (Throwable ex) {
+                    log.error(method.getName() + "方法的fallback执行失败", ex);
+                    callback.onFailure(call, e);
                 }
             }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                callback.onResponse(call, response);
+            }
+        };
+    }
+
+    /**
+     * 用原始参数调用fallback
+     *
+     * @param invocation
+     * @return
+     * @throws Throwable
+     */
+    private Object fallback(HttpInvocation invocation) throws Throwable {
+        try {
+            return method.invoke(fallback, invocation.getArguments());
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
         }
     }
 
     /**
-     * 发送get请求
-     *
-     * @param headers
-     * @param params
-     * @param files
-     * @return
-     */
-    private Object handleGetHttp(
-            String url,
-            Map<String, String> headers,
-            Map<String, Object> params,
-            Map<String, File[]> files,
-            Callback callback,
-            ProgressListener progressListener)
-            throws IOException {
-        return handleSimpleHttp(
-                url,
-                headers,
-                params,
-                files,
-                callback,
-                progressListener,
-                (okHttpClientFactory) -> HttpUtils.getHttp(okHttpClientFactory));
-    }
-
-    private Object handlePostHttp(
-            String url,
-            Map<String, String> headers,
-            Map<String, Object> params,
-            Map<String, File[]> files,
-            Callback callback,
-            ProgressListener progressListener)
-            throws IOException {
-        return handleHttp(
-                url,
-                headers,
-                params,
-                files,
-                callback,
-                progressListener,
-                okHttpClientFactory -> HttpUtils.postHttp(okHttpClientFactory));
-    }
-
-    private Object handlePutHttp(
-            String url,
-            Map<String, String> headers,
-            Map<String, Object> params,
-            Map<String, File[]> files,
-            Callback callback,
-            ProgressListener progressListener)
-            throws IOException {
-        return handleHttp(
-                url,
-                headers,
-                params,
-                files,
-                callback,
-                progressListener,
-                okHttpClientFactory -> HttpUtils.putHttp(okHttpClientFactory));
-    }
-
-    private Object handleHeadHttp(
-            String url,
-            Map<String, String> headers,
-            Map<String, Object> params,
-            Map<String, File[]> files,
-            Callback callback,
-            ProgressListener progressListener)
-            throws IOException {
-        return handleSimpleHttp(
-                url,
-                headers,
-                params,
-                files,
-                callback,
-                progressListener,
-                (okHttpClientFactory) -> HttpUtils.headHttp(okHttpClientFactory));
-    }
-
-    private Object handleDeleteHttp(
-            String url,
-            Map<String, String> headers,
-            Map<String, Object> params,
-            Map<String, File[]> files,
-            Callback callback,
-            ProgressListener progressListener)
-            throws IOException {
-        return handleHttp(
-                url,
-                headers,
-                params,
-                files,
-                callback,
-                progressListener,
-                okHttpClientFactory -> HttpUtils.deleteHttp(okHttpClientFactory));
-    }
-
-    private Object handlePatchHttp(
-            String url,
-            Map<String, String> headers,
-            Map<String, Object> params,
-            Map<String, File[]> files,
-            Callback callback,
-            ProgressListener progressListener)
-            throws IOException {
-        return handleHttp(
-                url,
-                headers,
-                params,
-                files,
-                callback,
-                progressListener,
-                okHttpClientFactory -> HttpUtils.patchHttp(okHttpClientFactory));
-    }
-
-    private Object handleSimpleHttp(
-            String url,
-            Map<String, String> headers,
-            Map<String, Object> params,
-            Map<String, File[]> files,
-            Callback callback,
-            ProgressListener progressListener,
-            HttpFactory httpFactory)
-            throws IOException {
+     * 创建Call，开启对冲时返回对冲请求，配置了隔舱时在隔舱中执行
+     *
+     * @param request
+     * @return
+     */
+    private Call newCall(Request request) {
+        Call call =
+                Objects.isNull(hedgePolicy)
+                        ? http.newCall(request)
+                        : new HedgedCall(http, request, hedgePolicy);
+        return Objects.isNull(compartment) ? call : new BulkheadCall(call, compartment);
+    }
+
+    /**
+     * 解析成功后写入缓存，缓存的权重是响应体的字节数
+     *
+     * @param key
+     * @param responseDecoder
+     * @return
+     */
+    private ResponseDecoder cachingDecoder(String key, ResponseDecoder responseDecoder) {
+        return response -> {
+            Response buffered = ResponseDecoders.buffer(response);
+            long bytes = Objects.isNull(buffered.body()) ? 0 : buffered.body().contentLength();
+            Object value = responseDecoder.decode(buffered);
+            responseCache.put(key, value, bytes);
+            return value;
+        };
+    }
+
+    /**
+     * 在后台刷新缓存，解析成功后由cachingDecoder写入缓存
+     *
+     * @param request
+     * @param cachingDecoder
+     * @return
+     */
+    private CompletableFuture<Object> refresh(Request request, ResponseDecoder cachingDecoder) {
+        CallFuture<Object> future = new CallFuture<>(cachingDecoder);
+        Call call = newCall(request);
+        future.setCall(call);
+        call.enqueue(future);
+        return future;
+    }
+
+    /**
+     * 合并相同的请求，每个调用者各自解析共享的响应，发送请求时同样使用对冲和隔舱
+     *
+     * @param request
+     * @param responseDecoder
+     * @return
+     * @throws Throwable
+     */
+    private Object executeSingleFlight(Request request, ResponseDecoder responseDecoder)
+            throws Throwable {
+        return responseDecoder.decode(
+                singleFlightGroup.execute(this::newCall, request, http.callTimeoutNanos(request)));
+    }
+
+    /**
+     * 异步合并相同的请求，每个调用者各自解析共享的响应
+     *
+     * @param request
+     * @param responseDecoder
+     * @return
+     */
+    private CompletableFuture<Object> enqueueSingleFlight(
+            Request request, ResponseDecoder responseDecoder) {
+        long timeoutNanos = http.callTimeoutNanos(request);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        singleFlightGroup
+                .enqueue(this::newCall, request, timeoutNanos)
+                .whenComplete(
+                        (response, e) -> {
+                            if (!Objects.isNull(e)) {
+                                future.completeExceptionally(e);
+                                return;
+                            }
+                            try {
+                                future.complete(responseDecoder.decode(response));
+                            } catch (Throwable ex) {
+                                future.completeExceptionally(ex);
+                            }
+                        });
+        return future;
+    }
+
+    /**
+     * 返回逐个读取元素的Stream或者Iterator，自定义ResponseHandler时只包含处理后的一个值
+     *
+     * @param response
+     * @param responseHandler
+     * @return
+     * @throws Exception
+     */
+    private Object handleElements(Response response, ResponseHandler responseHandler)
+            throws Exception {
+        if (!Objects.isNull(responseHandler)) {
+            Object value = responseDecoder(responseHandler).decode(response);
+            List<Object> values =
+                    Objects.isNull(value)
+                            ? Collections.emptyList()
+                            : Collections.singletonList(value);
+            return Objects.equals(resultMode, ResultMode.STREAM)
+                    ? values.stream()
+                    : values.iterator();
+        }
+        ResponseIterator<Object> iterator =
+                new ResponseIterator<>(new JsonElementReader(response, elementType));
+        return Objects.equals(resultMode, ResultMode.STREAM) ? iterator.stream() : iterator;
+    }
+
+    /**
+     * 处理Websocket方法
+     *
+     * @param invocation
+     * @return
+     */
+    private WebSocket handleWebSocket(HttpInvocation invocation) {
+        String realUrl = realUrl(invocation);
+        if (!Objects.isNull(endpointGroup) && realUrl.startsWith(endpointGroup.template())) {
+            // WebSocket不经过拦截器，直接在这里选择地址
+            String shardKey = invocation.getShardKey();
+            Endpoint endpoint =
+                    Objects.isNull(shardKey)
+                            ? endpointGroup.choose()
+                            : endpointGroup.choose(new Shard(shardKey));
+            realUrl = endpoint.getBase() + realUrl.substring(endpointGroup.template().length());
+        }
+        WebSocketListener listener = invocation.getWebSocketListener();
+        if (Objects.isNull(listener)) {
+            throw new IllegalArgumentException("需要设置一个WebSocketListener");
+        }
+        return ((WebSocketFactory) http).createWebSocket(realUrl, listener);
+    }
+
+    /**
+     * 获取真实的请求url
+     *
+     * @param invocation
+     * @return
+     */
+    private String realUrl(HttpInvocation invocation) {
+        String url = invocation.getUrl();
         String realUrl = StringUtils.isBlank(url) ? httpMethodType.getUrl() : url;
-        BaseOkHttpClientFactory okHttpClientFactory = httpMethodType.getOkHttpClientFactory();
+        if (!Objects.isNull(endpointGroup) && !isAbsolute(realUrl)) {
+            // 相对路径先拼接在第一个地址后面，由拦截器替换成选中的地址
+            String path = StringUtils.defaultString(realUrl);
+            realUrl =
+                    endpointGroup.template()
+                            + (path.isEmpty() || path.startsWith("/") ? path : "/" + path);
+        }
         if (StringUtils.isBlank(realUrl)) {
             throw new IllegalArgumentException("请求url不能为空");
         }
-        if (!CollectionUtils.isEmpty(files)) {
-            log.warn("该请求不支持上传文件");
+        return realUrl;
+    }
+
+    /**
+     * 是否是带协议的完整url
+     *
+     * @param url
+     * @return
+     */
+    private static boolean isAbsolute(String url) {
+        return StringUtils.startsWithAny(
+                StringUtils.lowerCase(url), "http://", "https://", "ws://", "wss://");
+    }
+
+    /**
+     * 创建请求，GET/HEAD把参数拼接在url上，其他请求使用RequestParamsHandler创建请求体
+     *
+     * @param invocation
+     * @return
+     */
+    private Request newRequest(HttpInvocation invocation) {
+        Request request = buildRequest(invocation);
+        Deadline deadline = Deadline.current();
+        if (Objects.isNull(deadline)
+                && Objects.isNull(timeoutPolicy)
+                && Objects.isNull(retryPolicy)
+                && Objects.isNull(circuitBreakerPolicy)
+                && Objects.isNull(rateLimitPolicy)
+                && Objects.isNull(endpointGroup)) {
+            return request;
+        }
+        // 方法上的策略放在请求的tag中，由OkHttpClient的拦截器读取
+        Request.Builder builder = request.newBuilder();
+        if (!Objects.isNull(endpointGroup)) {
+            builder.tag(EndpointGroup.class, endpointGroup);
+            if (!Objects.isNull(invocation.getShardKey())) {
+                builder.tag(Shard.class, new Shard(invocation.getShardKey()));
+            }
         }
-        if (!Objects.isNull(progressListener)) {
-            log.warn("该请求不支持监听器");
+        if (!Objects.isNull(deadline)) {
+            // 当前线程的截止时间随请求传递，异步请求同样受到限制
+            builder.tag(Deadline.class, deadline);
         }
-        AbstractHttp http = httpFactory.newHttp(okHttpClientFactory);
-
-        if (Objects.isNull(callback)) {
-            return http.send(realUrl, headers, params);
-        } else {
-            http.sendAsync(realUrl, headers, params, callback);
-            return null;
+        if (!Objects.isNull(timeoutPolicy)) {
+            builder.tag(TimeoutPolicy.class, timeoutPolicy);
+        }
+        if (!Objects.isNull(retryPolicy)) {
+            builder.tag(RetryPolicy.class, retryPolicy);
+        }
+        if (!Objects.isNull(circuit)) {
+            builder.tag(Circuit.class, circuit);
+        } else if (!Objects.isNull(circuitBreakerPolicy)) {
+            builder.tag(CircuitBreakerPolicy.class, circuitBreakerPolicy);
+        }
+        if (!Objects.isNull(rateLimiter)) {
+            builder.tag(RateLimiter.class, rateLimiter);
+        } else if (!Objects.isNull(rateLimitPolicy)) {
+            builder.tag(RateLimitPolicy.class, rateLimitPolicy);
         }
+        return builder.build();
     }
 
-    private Object handleHttp(
-            String url,
-            Map<String, String> headers,
-            Map<String, Object> params,
-            Map<String, File[]> files,
-            Callback callback,
-            ProgressListener progressListener,
-            HttpFactory httpFactory)
-            throws IOException {
-        String realUrl = StringUtils.isBlank(url) ? httpMethodType.getUrl() : url;
-        BaseOkHttpClientFactory okHttpClientFactory = httpMethodType.getOkHttpClientFactory();
-        Class<? extends RequestParamsHandler> handlerClass = httpMethodType.getHandlerClass();
-        if (StringUtils.isBlank(realUrl)) {
-            throw new IllegalArgumentException("请求url不能为空");
+    /**
+     * 根据绑定好的参数创建请求
+     *
+     * @param invocation
+     * @return
+     */
+    private Request buildRequest(HttpInvocation invocation) {
+        String realUrl = realUrl(invocation);
+        Map<String, String> headers = invocation.getHeaders();
+        Map<String, Object> params = invocation.getParams();
+        if (!hasBody) {
+            return http.newRequest(realUrl, headers, params, null, null);
         }
-        AbstractHttp http = httpFactory.newHttp(okHttpClientFactory);
+        Map<String, File[]> files = invocation.getFiles();
+        Class<? extends RequestParamsHandler> handlerClass = httpMethodType.getHandlerClass();
         if (Objects.equals(handlerClass, SimpleJsonRequestParamsHandler.class)
                 && !CollectionUtils.isEmpty(files)) {
             handlerClass = FormDataJsonRequestParamsHandler.class;
         }
         http.handler(handlerClass);
-        if (Objects.isNull(callback)) {
-            return http.send(realUrl, headers, params, files, progressListener);
-        } else {
-            http.sendAsync(realUrl, headers, params, files, progressListener, callback);
-            return null;
+        return http.newRequest(
+                realUrl, headers, params, files, invocation.getProgressListener());
+    }
+
+    /**
+     * 获取响应解码器，Response,void,String以及原始响应体类型使用固定的解码器，其他类型优先使用传入的ResponseHandler，否则解析JSON
+     *
+     * @param responseHandler
+     * @return
+     */
+    private ResponseDecoder responseDecoder(ResponseHandler responseHandler) {
+        if (Objects.isNull(responseHandler) || ResponseDecoders.isBuiltin(decoder)) {
+            return decoder;
         }
+        return response -> {
+            try {
+                return responseHandler.handle(response);
+            } finally {
+                response.close();
+            }
+        };
     }
 
-    interface HttpFactory {
-        AbstractHttp newHttp(BaseOkHttpClientFactory okHttpClientFactory);
+    /** 方法返回结果的方式 */
+    enum ResultMode {
+        /** 同步返回 */
+        SYNC,
+        /** 返回CompletableFuture */
+        FUTURE,
+        /** 返回Reactive Streams的Publisher */
+        PUBLISHER,
+        /** 返回Reactor的Mono */
+        MONO,
+        /** 返回Reactor的Flux */
+        FLUX,
+        /** 返回Stream，关闭Stream时关闭响应 */
+        STREAM,
+        /** 返回Iterator，读取完毕时关闭响应 */
+        ITERATOR
     }
 }
@@ -1,22 +1,40 @@
 package com.github.zw201913.simplehttp.core.proxy;
 
+import com.github.zw201913.simplehttp.annotation.*;
+import com.github.zw201913.simplehttp.core.factory.BaseOkHttpClientFactory;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.util.Map;
+import java.util.Objects;
 
 /** @author zouwei */
+@Slf4j
 @Getter
 public class HttpProxyFactory<T> {
 
+    /** okHttpClient缓存 */
+    private static final Map<Class<? extends BaseOkHttpClientFactory>, BaseOkHttpClientFactory>
+            okHttpClientFactoryCache = Maps.newConcurrentMap();
+
+    /** 编译期注解处理器生成的实现类后缀 */
+    public static final String GENERATED_SUFFIX = "$$Impl";
+
     private final Class<T> httpInterface;
 
-    private final Map<Method, HttpMethod> methodCache = Maps.newConcurrentMap();
+    /** 创建代理工厂时就编译好所有方法，运行期只读 */
+    private final Map<Method, HttpMethod> methodCache;
 
     public HttpProxyFactory(Class<T> httpInterface) {
         this.httpInterface = httpInterface;
+        this.methodCache = compileHttpMethods(httpInterface);
     }
 
     /**
@@ -31,11 +49,181 @@ public class HttpProxyFactory<T> {
     }
 
     /**
-     * 创建代理对象
+     * 创建代理对象，优先使用编译期生成的实现类，没有的话使用动态代理
      * @return
      */
     public T newInstance() {
+        T generated = newGeneratedInstance();
+        if (!Objects.isNull(generated)) {
+            return generated;
+        }
         final HttpProxy<T> mapperProxy = new HttpProxy<>(httpInterface, methodCache);
         return newInstance(mapperProxy);
     }
+
+    /**
+     * 创建编译期生成的实现类对象
+     *
+     * @return
+     */
+    protected T newGeneratedInstance() {
+        Class<?> generatedClass;
+        try {
+            generatedClass =
+                    Class.forName(
+                            httpInterface.getName() + GENERATED_SUFFIX,
+                            true,
+                            httpInterface.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (!httpInterface.isAssignableFrom(generatedClass)) {
+            log.warn(generatedClass.getName() + "没有实现" + httpInterface.getName());
+            return null;
+        }
+        try {
+            return httpInterface.cast(
+                    generatedClass.getConstructor(HttpProxyFactory.class).newInstance(this));
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getTargetException();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("创建" + generatedClass.getName() + "失败", cause);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建" + generatedClass.getName() + "失败", e);
+        }
+    }
+
+    /**
+     * 获取编译好的方法，供生成的实现类使用
+     *
+     * @param name
+     * @param parameterTypes
+     * @return
+     */
+    public HttpMethod httpMethod(String name, Class<?>... parameterTypes) {
+        HttpMethod httpMethod = null;
+        try {
+            httpMethod = methodCache.get(httpInterface.getMethod(name, parameterTypes));
+        } catch (NoSuchMethodException e) {
+            log.error(httpInterface.getName() + "没有" + name + "方法", e);
+        }
+        if (Objects.isNull(httpMethod)) {
+            throw new IllegalArgumentException(httpInterface.getName() + "." + name + "方法没有编译");
+        }
+        return httpMethod;
+    }
+
+    /**
+     * 编译接口中所有的方法，签名不合法时直接抛出异常
+     *
+     * @param httpInterface
+     * @return
+     */
+    private static Map<Method, HttpMethod> compileHttpMethods(Class<?> httpInterface) {
+        ImmutableMap.Builder<Method, HttpMethod> builder = ImmutableMap.builder();
+        for (Method method : httpInterface.getMethods()) {
+            if (method.isDefault() || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            HttpMethodType httpMethodType = resolveMethodAnnotation(method);
+            if (Objects.isNull(httpMethodType)) {
+                String logstr =
+                        httpInterface.getName() + "." + method.getName() + "方法缺少请求注解";
+                log.error(logstr);
+                throw new IllegalArgumentException(logstr);
+            }
+            builder.put(method, new HttpMethod(method, httpMethodType));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 解析方法上面的注解
+     *
+     * @param method
+     * @return
+     */
+    private static HttpMethodType resolveMethodAnnotation(Method method) {
+        // 获取方法上所有的注解
+        Annotation[] allAnnotations = method.getDeclaredAnnotations();
+        if (Objects.isNull(allAnnotations) || allAnnotations.length <= 0) {
+            return null;
+        }
+        for (Annotation annotation : allAnnotations) {
+            Class<? extends Annotation> clazz = annotation.annotationType();
+            if (Objects.equals(clazz, Get.class)) {
+                Get get = method.getDeclaredAnnotation(Get.class);
+                return new HttpMethodType(
+                        get.value(),
+                        cacheOkHttpClientFactory(get.clientFactory()),
+                        null,
+                        HttpMethodType.MethodType.GET);
+            } else if (Objects.equals(clazz, Head.class)) {
+                Head head = method.getDeclaredAnnotation(Head.class);
+                return new HttpMethodType(
+                        head.value(),
+                        cacheOkHttpClientFactory(head.clientFactory()),
+                        null,
+                        HttpMethodType.MethodType.HEAD);
+            } else if (Objects.equals(clazz, Post.class)) {
+                Post post = method.getDeclaredAnnotation(Post.class);
+                return new HttpMethodType(
+                        post.value(),
+                        cacheOkHttpClientFactory(post.clientFactory()),
+                        post.handler(),
+                        HttpMethodType.MethodType.POST);
+            } else if (Objects.equals(clazz, Put.class)) {
+                Put put = method.getDeclaredAnnotation(Put.class);
+                return new HttpMethodType(
+                        put.value(),
+                        cacheOkHttpClientFactory(put.clientFactory()),
+                        put.handler(),
+                        HttpMethodType.MethodType.PUT);
+            } else if (Objects.equals(clazz, Delete.class)) {
+                Delete delete = method.getDeclaredAnnotation(Delete.class);
+                return new HttpMethodType(
+                        delete.value(),
+                        cacheOkHttpClientFactory(delete.clientFactory()),
+                        delete.handler(),
+                        HttpMethodType.MethodType.DELETE);
+            } else if (Objects.equals(clazz, Patch.class)) {
+                Patch patch = method.getDeclaredAnnotation(Patch.class);
+                return new HttpMethodType(
+                        patch.value(),
+                        cacheOkHttpClientFactory(patch.clientFactory()),
+                        patch.handler(),
+                        HttpMethodType.MethodType.PATCH);
+            } else if (Objects.equals(clazz, Ws.class)) {
+                Ws ws = method.getDeclaredAnnotation(Ws.class);
+                return new HttpMethodType(
+                        ws.value(),
+                        cacheOkHttpClientFactory(ws.clientFactory()),
+                        null,
+                        HttpMethodType.MethodType.WS);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 缓存OkHttpClientFactory
+     *
+     * @param clientFactory
+     * @return
+     */
+    private static BaseOkHttpClientFactory cacheOkHttpClientFactory(
+            Class<? extends BaseOkHttpClientFactory> clientFactory) {
+        return okHttpClientFactoryCache.computeIfAbsent(
+                clientFactory,
+                key -> {
+                    try {
+                        return key.getDeclaredConstructor().newInstance();
+                    } catch (Exception e) {
+                        log.error("创建OkHttpClient失败", e);
+                        throw new IllegalStateException("创建OkHttpClient失败", e);
+                    }
+                });
+    }
 }
@@ -0,0 +1,85 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.support.JsonUtils;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.type.JavaType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * 从响应体中逐个读取元素，一次只解析一个元素
+ *
+ * <p>响应体是JSON数组时读取数组中的每个元素，否则依次读取连续的JSON值（例如NDJSON）。元素类型本身是集合或数组时不会展开外层数组
+ *
+ * @author zouwei
+ */
+final class JsonElementReader implements Closeable {
+
+    private final Response response;
+
+    private final JsonParser parser;
+
+    private final JavaType elementType;
+
+    private boolean started;
+
+    private boolean inArray;
+
+    JsonElementReader(Response response, JavaType elementType) throws Exception {
+        ResponseBody body = ResponseDecoders.successfulBody(response);
+        this.response = response;
+        this.elementType = elementType;
+        try {
+            this.parser = JsonUtils.createParser(body.byteStream());
+        } catch (IOException e) {
+            response.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 读取下一个元素，JSON中的null会被跳过
+     *
+     * @return 没有更多元素时返回null
+     * @throws IOException
+     */
+    Object read() throws IOException {
+        JsonToken token;
+        while (!Objects.isNull(token = parser.nextToken())) {
+            if (!started) {
+                started = true;
+                if (token == JsonToken.START_ARRAY && !elementType.isContainerType()) {
+                    inArray = true;
+                    continue;
+                }
+            }
+            if (inArray && token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            Object value = JsonUtils.readValue(parser, elementType);
+            if (!Objects.isNull(value)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            // 关闭响应即可
+        } finally {
+            response.close();
+        }
+    }
+}
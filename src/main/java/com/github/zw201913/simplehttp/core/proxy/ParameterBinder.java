@@ -0,0 +1,19 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+/**
+ * 启动时为每个参数编译好的绑定器，调用时直接把参数写进HttpInvocation
+ *
+ * @author zouwei
+ */
+@FunctionalInterface
+interface ParameterBinder {
+
+    /**
+     * 绑定参数
+     *
+     * @param invocation
+     * @param arg 不会为null
+     * @throws Exception
+     */
+    void bind(HttpInvocation invocation, Object arg) throws Exception;
+}
@@ -0,0 +1,79 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.core.handler.ResponseHandler;
+import com.github.zw201913.simplehttp.core.http.ProgressListener;
+import com.github.zw201913.simplehttp.support.CastUtils;
+import com.github.zw201913.simplehttp.support.ClassUtils;
+import okhttp3.Callback;
+import okhttp3.WebSocketListener;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * 各种参数绑定器
+ *
+ * @author zouwei
+ */
+final class ParameterBinders {
+
+    private ParameterBinders() {}
+
+    static final ParameterBinder CALLBACK =
+            (invocation, arg) -> invocation.setCallback((Callback) arg);
+
+    static final ParameterBinder PROGRESS_LISTENER =
+            (invocation, arg) -> invocation.setProgressListener((ProgressListener) arg);
+
+    static final ParameterBinder RESPONSE_HANDLER =
+            (invocation, arg) -> invocation.setResponseHandler((ResponseHandler) arg);
+
+    static final ParameterBinder WEB_SOCKET_LISTENER =
+            (invocation, arg) -> invocation.setWebSocketListener((WebSocketListener) arg);
+
+    static final ParameterBinder URL = (invocation, arg) -> invocation.setUrl((String) arg);
+
+    static final ParameterBinder SHARD_KEY =
+            (invocation, arg) -> invocation.setShardKey(String.valueOf(arg));
+
+    static final ParameterBinder HEADER_MAP =
+            (invocation, arg) -> invocation.headers((Map<?, ?>) arg);
+
+    static final ParameterBinder FIELD_MAP =
+            (invocation, arg) -> invocation.fields((Map<?, ?>) arg);
+
+    static final ParameterBinder HEADER_OBJECT = (invocation, arg) -> invocation.bean(arg, false);
+
+    static final ParameterBinder FIELD_OBJECT = (invocation, arg) -> invocation.bean(arg, true);
+
+    /**
+     * 指定key的请求头
+     *
+     * @param key
+     * @return
+     */
+    static ParameterBinder header(String key) {
+        return (invocation, arg) -> invocation.header(key, CastUtils.castString(arg));
+    }
+
+    /**
+     * 指定key的请求参数，根据声明的类型决定是文件还是简单数据
+     *
+     * @param key
+     * @param type
+     * @return
+     */
+    static ParameterBinder field(String key, Class<?> type) {
+        if (ClassUtils.isFile(type)) {
+            return (invocation, arg) -> invocation.file(key, new File[] {(File) arg});
+        }
+        if (ClassUtils.isFileArray(type)) {
+            return (invocation, arg) -> invocation.file(key, (File[]) arg);
+        }
+        if (type.isAssignableFrom(File.class) || type.isAssignableFrom(File[].class)) {
+            // 声明类型无法确定是不是文件，只能在调用时判断
+            return (invocation, arg) -> invocation.field(key, arg);
+        }
+        return (invocation, arg) -> invocation.param(key, arg);
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.core.http.AbstractHttp;
+import okhttp3.Request;
+import org.codehaus.jackson.type.JavaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 创建响应式的返回结果，只有返回类型是Publisher、Mono、Flux时才会加载这个类，Reactor不是必须的依赖
+ *
+ * @author zouwei
+ */
+final class ReactiveResults {
+
+    private ReactiveResults() {}
+
+    /**
+     * 创建返回结果
+     *
+     * @param resultMode
+     * @param http
+     * @param request
+     * @param decoder
+     * @param elementType 为null时响应解码成一个值，否则逐个读取元素
+     * @return
+     */
+    static Object create(
+            HttpMethod.ResultMode resultMode,
+            AbstractHttp http,
+            Request request,
+            ResponseDecoder decoder,
+            JavaType elementType) {
+        CallPublisher<Object> publisher = new CallPublisher<>(http, request, decoder, elementType);
+        switch (resultMode) {
+            case MONO:
+                return Mono.from(publisher);
+            case FLUX:
+                return Flux.from(publisher);
+            default:
+                return publisher;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import okhttp3.Response;
+
+/**
+ * 启动时根据方法返回类型解析好的响应解码器
+ *
+ * @author zouwei
+ */
+@FunctionalInterface
+interface ResponseDecoder {
+
+    /**
+     * 解码响应，除了需要把Response交给调用者的情况，解码器负责关闭Response
+     *
+     * @param response
+     * @return
+     * @throws Exception
+     */
+    Object decode(Response response) throws Exception;
+}
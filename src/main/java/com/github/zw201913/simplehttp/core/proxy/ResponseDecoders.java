@@ -0,0 +1,208 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.support.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import org.codehaus.jackson.type.JavaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * 各种响应解码器
+ *
+ * @author zouwei
+ */
+@Slf4j
+final class ResponseDecoders {
+
+    private ResponseDecoders() {}
+
+    /** 写入文件时每次转移的字节数 */
+    private static final long TRANSFER_SIZE = 64 * 1024;
+
+    /** 直接返回Response，由调用者关闭 */
+    static final ResponseDecoder RESPONSE = response -> response;
+
+    static final ResponseDecoder VOID =
+            response -> {
+                response.close();
+                return null;
+            };
+
+    static final ResponseDecoder STRING =
+            response -> {
+                try (ResponseBody body = successfulBody(response)) {
+                    return body.string();
+                }
+            };
+
+    static final ResponseDecoder BYTES =
+            response -> {
+                try (ResponseBody body = successfulBody(response)) {
+                    return body.bytes();
+                }
+            };
+
+    /** 直接返回响应体的字节流，由调用者关闭 */
+    static final ResponseDecoder INPUT_STREAM =
+            response -> successfulBody(response).byteStream();
+
+    /** 直接返回响应体的BufferedSource，由调用者关闭 */
+    static final ResponseDecoder BUFFERED_SOURCE = response -> successfulBody(response).source();
+
+    /** 知道响应体长度时直接读入堆外内存，否则包装读取到的字节数组 */
+    static final ResponseDecoder BYTE_BUFFER =
+            response -> {
+                try (ResponseBody body = successfulBody(response)) {
+                    long contentLength = body.contentLength();
+                    if (contentLength < 0 || contentLength > Integer.MAX_VALUE) {
+                        return ByteBuffer.wrap(body.bytes());
+                    }
+                    ByteBuffer buffer = ByteBuffer.allocateDirect((int) contentLength);
+                    BufferedSource source = body.source();
+                    while (buffer.hasRemaining() && source.read(buffer) != -1) {
+                        // 一直读到缓冲区填满或者响应体结束
+                    }
+                    buffer.flip();
+                    return buffer;
+                }
+            };
+
+    /** 把响应体写入临时文件，文件由调用者移动或者删除 */
+    static final ResponseDecoder PATH =
+            response -> {
+                try (ResponseBody body = successfulBody(response)) {
+                    Path path = Files.createTempFile("simple-http-", ".tmp");
+                    try (FileChannel channel =
+                            FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        BufferedSource source = body.source();
+                        long position = 0;
+                        long count;
+                        while ((count = channel.transferFrom(source, position, TRANSFER_SIZE))
+                                > 0) {
+                            position += count;
+                        }
+                    } catch (IOException e) {
+                        Files.deleteIfExists(path);
+                        throw e;
+                    }
+                    return path;
+                }
+            };
+
+    /**
+     * 根据返回类型解析解码器
+     *
+     * @param returnType
+     * @return
+     */
+    static ResponseDecoder resolve(Type returnType) {
+        if (Objects.equals(returnType, Response.class)) {
+            return RESPONSE;
+        }
+        if (Objects.equals(returnType, void.class) || Objects.equals(returnType, Void.class)) {
+            return VOID;
+        }
+        if (Objects.equals(returnType, String.class)) {
+            return STRING;
+        }
+        if (Objects.equals(returnType, byte[].class)) {
+            return BYTES;
+        }
+        if (Objects.equals(returnType, InputStream.class)) {
+            return INPUT_STREAM;
+        }
+        if (Objects.equals(returnType, BufferedSource.class)) {
+            return BUFFERED_SOURCE;
+        }
+        if (Objects.equals(returnType, ByteBuffer.class)) {
+            return BYTE_BUFFER;
+        }
+        if (Objects.equals(returnType, Path.class)) {
+            return PATH;
+        }
+        return json(returnType);
+    }
+
+    /**
+     * 是否是固定类型的解码器，固定类型的返回值不使用ResponseHandler处理
+     *
+     * @param decoder
+     * @return
+     */
+    static boolean isBuiltin(ResponseDecoder decoder) {
+        return decoder == RESPONSE
+                || decoder == VOID
+                || decoder == STRING
+                || decoder == BYTES
+                || decoder == INPUT_STREAM
+                || decoder == BUFFERED_SOURCE
+                || decoder == BYTE_BUFFER
+                || decoder == PATH;
+    }
+
+    /**
+     * 直接从响应体的字节流解析JSON，不会先读成字符串
+     *
+     * @param returnType
+     * @return
+     */
+    static ResponseDecoder json(Type returnType) {
+        JavaType javaType = JsonUtils.javaType(returnType);
+        return response -> {
+            try (ResponseBody body = successfulBody(response)) {
+                // 空响应体和原来解析空字符串一样返回null
+                if (body.source().exhausted()) {
+                    return null;
+                }
+                return JsonUtils.stream2Obj(body.byteStream(), javaType);
+            }
+        };
+    }
+
+    /**
+     * 把响应体读成字节数组，返回的新Response可以重复读取响应体长度
+     *
+     * @param response
+     * @return
+     * @throws IOException
+     */
+    static Response buffer(Response response) throws IOException {
+        try (ResponseBody body = response.body()) {
+            if (Objects.isNull(body)) {
+                return response;
+            }
+            MediaType contentType = body.contentType();
+            byte[] bytes = body.bytes();
+            return response.newBuilder().body(ResponseBody.create(contentType, bytes)).build();
+        }
+    }
+
+    /**
+     * 检查响应是否成功，失败时关闭响应并抛出异常
+     *
+     * @param response
+     * @return
+     * @throws Exception
+     */
+    static ResponseBody successfulBody(Response response) throws Exception {
+        if (response.isSuccessful()) {
+            return response.body();
+        }
+        response.close();
+        String message = response.message();
+        log.error(message);
+        throw new Exception(message);
+    }
+}
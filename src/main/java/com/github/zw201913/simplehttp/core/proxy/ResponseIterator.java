@@ -0,0 +1,85 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 逐个读取响应体中元素的迭代器，内存中只保留当前元素
+ *
+ * <p>读取完毕或者读取出错时自动关闭响应；没有读完就不再使用时需要调用close关闭响应
+ *
+ * @author zouwei
+ */
+final class ResponseIterator<T> implements Iterator<T>, Closeable {
+
+    private final JsonElementReader reader;
+
+    private Object next;
+
+    private boolean closed;
+
+    ResponseIterator(JsonElementReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!Objects.isNull(next)) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        try {
+            next = reader.read();
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+        if (Objects.isNull(next)) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        @SuppressWarnings("unchecked")
+        T current = (T) next;
+        next = null;
+        return current;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            next = null;
+            reader.close();
+        }
+    }
+
+    /**
+     * 转换成Stream，关闭Stream时关闭响应
+     *
+     * @return
+     */
+    Stream<T> stream() {
+        Spliterator<T> spliterator =
+                Spliterators.spliteratorUnknownSize(
+                        this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.core.batch.BatchCalls;
+import com.google.common.collect.Maps;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 合并正在执行的相同请求，只有第一个调用者发送请求，其他调用者等待它的响应
+ *
+ * <p>响应体会先读成字节数组，每个调用者拿到的是共享同一个字节数组的新Response，各自解析自己的返回值
+ *
+ * @author zouwei
+ */
+final class SingleFlightGroup {
+
+    private final ConcurrentMap<String, CompletableFuture<SharedResponse>> inFlight =
+            Maps.newConcurrentMap();
+
+    /**
+     * 同步执行请求，等待其他调用者的请求时不超过自己的超时时间
+     *
+     * @param calls 创建Call，对冲、隔舱这些设置同样生效
+     * @param request
+     * @param timeoutNanos 调用者自己的超时时间，0表示不超时
+     * @return
+     * @throws Throwable
+     */
+    Response execute(Function<Request, Call> calls, Request request, long timeoutNanos)
+            throws Throwable {
+        String key = key(request);
+        CompletableFuture<SharedResponse> shared = new CompletableFuture<>();
+        CompletableFuture<SharedResponse> existing = inFlight.putIfAbsent(key, shared);
+        if (Objects.isNull(existing)) {
+            // 第一个调用者在当前线程发送请求
+            try {
+                complete(key, shared, calls.apply(request).execute());
+            } catch (Throwable e) {
+                fail(key, shared, e);
+            }
+            existing = shared;
+        }
+        try {
+            SharedResponse response =
+                    timeoutNanos > 0
+                            ? existing.get(timeoutNanos, TimeUnit.NANOSECONDS)
+                            : existing.get();
+            return response.newResponse();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (TimeoutException e) {
+            throw new InterruptedIOException("等待合并的请求超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待合并的请求被中断");
+        }
+    }
+
+    /**
+     * 异步执行请求，取消返回的Future不会取消共享的请求
+     *
+     * @param calls 创建Call，对冲、隔舱这些设置同样生效
+     * @param request
+     * @param timeoutNanos 调用者自己的超时时间，0表示不超时
+     * @return
+     */
+    CompletableFuture<Response> enqueue(
+            Function<Request, Call> calls, Request request, long timeoutNanos) {
+        String key = key(request);
+        CompletableFuture<SharedResponse> shared = new CompletableFuture<>();
+        CompletableFuture<SharedResponse> existing = inFlight.putIfAbsent(key, shared);
+        if (Objects.isNull(existing)) {
+            calls.apply(request)
+                    .enqueue(
+                            new Callback() {
+                                @Override
+                                public void onFailure(Call call, IOException e) {
+                                    fail(key, shared, e);
+                                }
+
+                                @Override
+                                public void onResponse(Call call, Response response) {
+                                    try {
+                                        complete(key, shared, response);
+                                    } catch (Throwable e) {
+                                        fail(key, shared, e);
+                                    }
+                                }
+                            });
+            return shared.thenApply(SharedResponse::newResponse);
+        }
+        CompletableFuture<Response> follower = existing.thenApply(SharedResponse::newResponse);
+        // 发送请求的调用者由自己的Call控制超时，等待的调用者按照自己的超时时间结束
+        return timeoutNanos > 0
+                ? BatchCalls.timeout(follower, timeoutNanos, TimeUnit.NANOSECONDS)
+                : follower;
+    }
+
+    /**
+     * 读取完响应体之后移除正在执行的请求，之后相同的请求会重新发送
+     *
+     * @param key
+     * @param shared
+     * @param response
+     * @throws IOException
+     */
+    private void complete(String key, CompletableFuture<SharedResponse> shared, Response response)
+            throws IOException {
+        SharedResponse sharedResponse;
+        try (ResponseBody body = response.body()) {
+            MediaType contentType = Objects.isNull(body) ? null : body.contentType();
+            byte[] bytes = Objects.isNull(body) ? new byte[0] : body.bytes();
+            Response head = response.newBuilder().body(null).build();
+            sharedResponse = new SharedResponse(head, contentType, bytes);
+        }
+        inFlight.remove(key, shared);
+        shared.complete(sharedResponse);
+    }
+
+    private void fail(String key, CompletableFuture<SharedResponse> shared, Throwable e) {
+        inFlight.remove(key, shared);
+        shared.completeExceptionally(e);
+    }
+
+    /**
+     * 请求方式、url和请求头都相同才是相同的请求
+     *
+     * @param request
+     * @return
+     */
+    private static String key(Request request) {
+        return request.method() + " " + request.url() + "\n" + request.headers();
+    }
+
+    /** 读取完响应体的共享响应 */
+    private static final class SharedResponse {
+
+        private final Response response;
+
+        private final MediaType contentType;
+
+        private final byte[] bytes;
+
+        SharedResponse(Response response, MediaType contentType, byte[] bytes) {
+            this.response = response;
+            this.contentType = contentType;
+            this.bytes = bytes;
+        }
+
+        /**
+         * 每个调用者使用自己的Response，响应体共享同一个只读的字节数组
+         *
+         * @return
+         */
+        Response newResponse() {
+            return response.newBuilder().body(ResponseBody.create(contentType, bytes)).build();
+        }
+    }
+}
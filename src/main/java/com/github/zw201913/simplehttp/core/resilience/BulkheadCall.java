@@ -0,0 +1,107 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 在隔舱中执行的Call，获取到许可才发送请求，收到响应头或者失败时归还许可
+ *
+ * @author zouwei
+ */
+public final class BulkheadCall implements Call {
+
+    private final Call delegate;
+
+    private final Compartment compartment;
+
+    private final AtomicBoolean executed = new AtomicBoolean();
+
+    public BulkheadCall(Call delegate, Compartment compartment) {
+        this.delegate = delegate;
+        this.compartment = compartment;
+    }
+
+    @Override
+    public Request request() {
+        return delegate.request();
+    }
+
+    @Override
+    public Response execute() throws IOException {
+        markExecuted();
+        compartment.acquire();
+        try {
+            return delegate.execute();
+        } finally {
+            compartment.release();
+        }
+    }
+
+    @Override
+    public void enqueue(Callback responseCallback) {
+        markExecuted();
+        Callback releasing =
+                new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        compartment.release();
+                        responseCallback.onFailure(BulkheadCall.this, e);
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) throws IOException {
+                        compartment.release();
+                        responseCallback.onResponse(BulkheadCall.this, response);
+                    }
+                };
+        boolean accepted =
+                compartment.submit(
+                        () -> delegate.enqueue(releasing),
+                        () -> responseCallback.onFailure(this, rejected()));
+        if (!accepted) {
+            responseCallback.onFailure(this, rejected());
+        }
+    }
+
+    private void markExecuted() {
+        if (!executed.compareAndSet(false, true)) {
+            throw new IllegalStateException("Already Executed");
+        }
+    }
+
+    private BulkheadFullException rejected() {
+        return new BulkheadFullException(compartment.getName());
+    }
+
+    @Override
+    public void cancel() {
+        // 还在等待的请求被取消后，获取到许可时OkHttp会直接回调onFailure并归还许可
+        delegate.cancel();
+    }
+
+    @Override
+    public boolean isExecuted() {
+        return executed.get();
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return delegate.isCanceled();
+    }
+
+    @Override
+    public Timeout timeout() {
+        return delegate.timeout();
+    }
+
+    @Override
+    public Call clone() {
+        return new BulkheadCall(delegate.clone(), compartment);
+    }
+}
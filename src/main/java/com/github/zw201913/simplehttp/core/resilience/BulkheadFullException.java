@@ -0,0 +1,27 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+/**
+ * 隔舱已满，请求没有发送
+ *
+ * @author zouwei
+ */
+public class BulkheadFullException extends CallRejectedException {
+
+    private static final long serialVersionUID = -1809333205207708802L;
+
+    private final String compartment;
+
+    public BulkheadFullException(String compartment) {
+        super("隔舱" + compartment + "已满，请求没有发送");
+        this.compartment = compartment;
+    }
+
+    /**
+     * 隔舱的名称
+     *
+     * @return
+     */
+    public String getCompartment() {
+        return compartment;
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import java.io.IOException;
+
+/**
+ * 请求被客户端的熔断、限流这类策略拒绝，没有发送
+ *
+ * <p>继承IOException，异步请求通过Callback.onFailure收到这个异常，重试拦截器不会重试
+ *
+ * @author zouwei
+ */
+public class CallRejectedException extends IOException {
+
+    private static final long serialVersionUID = 3010088685920724497L;
+
+    public CallRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,204 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个熔断器，按照最近windowSize次请求的结果计算失败率和慢调用比例
+ *
+ * <p>关闭状态正常放行；超过阈值后打开，打开期间拒绝所有请求；openDuration之后进入半开状态，放行halfOpenCalls次试探请求，
+ * 试探请求全部结束后按照结果重新打开或者关闭
+ *
+ * @author zouwei
+ */
+@Slf4j
+public final class Circuit {
+
+    /** 窗口中记录的结果 */
+    private static final byte FAILURE = 1;
+
+    private static final byte SLOW = 2;
+
+    @Getter private final String name;
+
+    @Getter private final CircuitBreakerPolicy policy;
+
+    private final long slowCallNanos;
+
+    /** 环形窗口 */
+    private final byte[] outcomes;
+
+    private int next;
+
+    private int calls;
+
+    private int failures;
+
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+
+    /** 打开状态结束的时间 */
+    private long openUntil;
+
+    /** 半开状态剩余的试探次数 */
+    private int permits;
+
+    public Circuit(String name, CircuitBreakerPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(policy.getSlowCallDuration());
+        this.outcomes = new byte[policy.getWindowSize()];
+    }
+
+    /**
+     * 当前状态
+     *
+     * @return
+     */
+    public synchronized State state() {
+        if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * 当前窗口的失败率（百分比），请求数量不足minimumCalls时返回-1
+     *
+     * @return
+     */
+    public synchronized float failureRate() {
+        return calls < policy.getMinimumCalls() ? -1 : failures * 100f / calls;
+    }
+
+    /**
+     * 当前窗口的慢调用比例（百分比），请求数量不足minimumCalls时返回-1
+     *
+     * @return
+     */
+    public synchronized float slowCallRate() {
+        return calls < policy.getMinimumCalls() ? -1 : slowCalls * 100f / calls;
+    }
+
+    /**
+     * 是否会放行请求，不占用半开状态的试探次数
+     *
+     * @return
+     */
+    public synchronized boolean isCallPermitted() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return System.nanoTime() - openUntil >= 0;
+            default:
+                return permits > 0;
+        }
+    }
+
+    /**
+     * 获取发送请求的许可，半开状态会占用一次试探次数，获取成功后必须调用onResult或者release
+     *
+     * @return
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openUntil < 0) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (permits <= 0) {
+                return false;
+            }
+            permits--;
+        }
+        return true;
+    }
+
+    /**
+     * 记录请求结果
+     *
+     * @param failure 是否失败
+     * @param nanos 耗时
+     */
+    public synchronized void onResult(boolean failure, long nanos) {
+        if (state == State.OPEN) {
+            // 打开之前发出的请求，结果不再计入
+            return;
+        }
+        byte outcome = (byte) ((failure ? FAILURE : 0) | (nanos >= slowCallNanos ? SLOW : 0));
+        if (calls == outcomes.length) {
+            byte evicted = outcomes[next];
+            failures -= evicted & FAILURE;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            calls++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % outcomes.length;
+        failures += outcome & FAILURE;
+        slowCalls += (outcome & SLOW) >> 1;
+        if (state == State.HALF_OPEN) {
+            if (calls >= policy.getHalfOpenCalls()) {
+                transition(exceeded() ? State.OPEN : State.CLOSED);
+            }
+        } else if (calls >= policy.getMinimumCalls() && exceeded()) {
+            transition(State.OPEN);
+        }
+    }
+
+    /** 请求被取消，没有结果，归还半开状态的试探次数 */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            permits++;
+        }
+    }
+
+    /** 强制关闭熔断器并清空窗口 */
+    public synchronized void reset() {
+        transition(State.CLOSED);
+    }
+
+    private boolean exceeded() {
+        return failures * 100f / calls >= policy.getFailureRateThreshold()
+                || slowCalls * 100f / calls >= policy.getSlowCallRateThreshold();
+    }
+
+    private void transition(State target) {
+        State previous = state;
+        if (target == State.OPEN) {
+            log.warn(
+                    "熔断器"
+                            + name
+                            + "打开，失败率"
+                            + failures * 100f / calls
+                            + "%，慢调用比例"
+                            + slowCalls * 100f / calls
+                            + "%");
+            openUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.getOpenDuration());
+        } else if (previous != target) {
+            log.info("熔断器" + name + "从" + previous + "进入" + target);
+        }
+        state = target;
+        permits = target == State.HALF_OPEN ? policy.getHalfOpenCalls() : 0;
+        next = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    /** 熔断器状态 */
+    public enum State {
+        /** 正常放行 */
+        CLOSED,
+        /** 拒绝所有请求 */
+        OPEN,
+        /** 放行少量试探请求 */
+        HALF_OPEN
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * 按照熔断器决定是否发送请求，并记录每次请求的结果
+ *
+ * <p>放在重试拦截器之后，每次重试都单独计入熔断器；耗时按照收到响应头计算
+ *
+ * @author zouwei
+ */
+public class CircuitBreakerInterceptor implements Interceptor {
+
+    private final CircuitBreakers circuitBreakers;
+
+    public CircuitBreakerInterceptor(CircuitBreakers circuitBreakers) {
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Circuit circuit = circuitBreakers.circuit(request);
+        if (Objects.isNull(circuit)) {
+            return chain.proceed(request);
+        }
+        if (!circuit.tryAcquire()) {
+            throw new CircuitOpenException(circuit.getName());
+        }
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException | Error e) {
+            if (chain.call().isCanceled()) {
+                circuit.release();
+            } else {
+                circuit.onResult(true, System.nanoTime() - start);
+            }
+            throw e;
+        }
+        boolean failure = circuit.getPolicy().failureStatus(response.code());
+        circuit.onResult(failure, System.nanoTime() - start);
+        return response;
+    }
+}
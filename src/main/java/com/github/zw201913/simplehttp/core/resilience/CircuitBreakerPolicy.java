@@ -0,0 +1,90 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.annotation.CircuitBreaker;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 熔断策略，可以由@CircuitBreaker创建，也可以作为OkHttpClient工厂类的默认策略
+ *
+ * @author zouwei
+ */
+@Slf4j
+@Getter
+@EqualsAndHashCode
+public final class CircuitBreakerPolicy {
+
+    private final float failureRateThreshold;
+
+    private final float slowCallRateThreshold;
+
+    private final long slowCallDuration;
+
+    private final int windowSize;
+
+    private final int minimumCalls;
+
+    private final long openDuration;
+
+    private final int halfOpenCalls;
+
+    public CircuitBreakerPolicy(
+            float failureRateThreshold,
+            float slowCallRateThreshold,
+            long slowCallDuration,
+            int windowSize,
+            int minimumCalls,
+            long openDuration,
+            int halfOpenCalls) {
+        if (failureRateThreshold <= 0
+                || failureRateThreshold > 100
+                || slowCallRateThreshold <= 0
+                || slowCallRateThreshold > 100
+                || slowCallDuration <= 0
+                || windowSize < 1
+                || minimumCalls < 1
+                || minimumCalls > windowSize
+                || openDuration <= 0
+                || halfOpenCalls < 1
+                || halfOpenCalls > windowSize) {
+            String logstr = "熔断策略的参数不合法";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * 根据注解创建熔断策略
+     *
+     * @param circuitBreaker
+     * @return
+     */
+    public static CircuitBreakerPolicy of(CircuitBreaker circuitBreaker) {
+        return new CircuitBreakerPolicy(
+                circuitBreaker.failureRateThreshold(),
+                circuitBreaker.slowCallRateThreshold(),
+                circuitBreaker.slowCallDuration(),
+                circuitBreaker.windowSize(),
+                circuitBreaker.minimumCalls(),
+                circuitBreaker.openDuration(),
+                circuitBreaker.halfOpenCalls());
+    }
+
+    /**
+     * 响应状态码是否算作失败
+     *
+     * @param code
+     * @return
+     */
+    public boolean failureStatus(int code) {
+        return code >= 500;
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.google.common.collect.Maps;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个OkHttpClient工厂类的所有熔断器，按照主机和端口或者方法名区分
+ *
+ * <p>按照主机熔断时，和默认策略不同的@CircuitBreaker使用自己的熔断器，名称是主机和端口加上#策略序号，参数相同的策略共享熔断器
+ *
+ * @author zouwei
+ */
+public final class CircuitBreakers {
+
+    private final CircuitBreakerPolicy defaultPolicy;
+
+    private final ConcurrentMap<String, Circuit> circuits = Maps.newConcurrentMap();
+
+    /** 和默认策略不同的策略对应的序号 */
+    private final ConcurrentMap<CircuitBreakerPolicy, Integer> policyIds = Maps.newConcurrentMap();
+
+    private final AtomicInteger policyCount = new AtomicInteger();
+
+    /** @param defaultPolicy 请求上没有指定熔断策略时使用，为null时这些请求不熔断 */
+    public CircuitBreakers(CircuitBreakerPolicy defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    /**
+     * 获取熔断器，不存在时使用传入的策略创建
+     *
+     * @param name
+     * @param policy
+     * @return
+     */
+    public Circuit circuit(String name, CircuitBreakerPolicy policy) {
+        Circuit circuit = circuits.get(name);
+        if (Objects.isNull(circuit)) {
+            circuit = circuits.computeIfAbsent(name, key -> new Circuit(key, policy));
+        }
+        return circuit;
+    }
+
+    /**
+     * 获取请求对应的熔断器：请求的tag中有熔断器时直接使用，否则按照主机和端口获取
+     *
+     * @param request
+     * @return 请求不需要熔断时返回null
+     */
+    public Circuit circuit(Request request) {
+        Circuit circuit = request.tag(Circuit.class);
+        if (!Objects.isNull(circuit)) {
+            return circuit;
+        }
+        CircuitBreakerPolicy policy = request.tag(CircuitBreakerPolicy.class);
+        if (Objects.isNull(policy)) {
+            policy = defaultPolicy;
+        }
+        if (Objects.isNull(policy)) {
+            return null;
+        }
+        HttpUrl url = request.url();
+        String name = url.host() + ":" + url.port();
+        if (!policy.equals(defaultPolicy)) {
+            name += "#" + policyIds.computeIfAbsent(policy, key -> policyCount.incrementAndGet());
+        }
+        return circuit(name, policy);
+    }
+
+    /**
+     * 所有已经创建的熔断器，用于查看状态
+     *
+     * @return
+     */
+    public Map<String, Circuit> circuits() {
+        return Collections.unmodifiableMap(circuits);
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+/**
+ * 熔断器打开，请求没有发送
+ *
+ * @author zouwei
+ */
+public class CircuitOpenException extends CallRejectedException {
+
+    private static final long serialVersionUID = 3668945068638638037L;
+
+    private final String circuit;
+
+    public CircuitOpenException(String circuit) {
+        super("熔断器" + circuit + "已打开，请求没有发送");
+        this.circuit = circuit;
+    }
+
+    /**
+     * 熔断器的名称
+     *
+     * @return
+     */
+    public String getCircuit() {
+        return circuit;
+    }
+}
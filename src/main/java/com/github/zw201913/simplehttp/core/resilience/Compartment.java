@@ -0,0 +1,212 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.annotation.Bulkhead;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 舱壁隔离的一个隔舱，用信号量限制同时执行的请求数量
+ *
+ * <p>同步请求在调用线程中等待许可；异步请求放进等待队列，不占用任何线程，有许可归还时由归还的线程发送，等待超时时由计时器移出队列并拒绝
+ *
+ * @author zouwei
+ */
+@Slf4j
+public final class Compartment {
+
+    /** 异步请求等待超时的计时器，所有隔舱共享 */
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "simple-http-bulkhead-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /** 所有隔舱，接口上的@Bulkhead由接口的所有方法共享 */
+    private static final Map<String, Compartment> COMPARTMENTS = Maps.newConcurrentMap();
+
+    @Getter private final String name;
+
+    private final int maxQueue;
+
+    private final long maxWaitNanos;
+
+    private final Semaphore permits;
+
+    /** 正在等待的同步和异步请求数量 */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+    private Compartment(String name, Bulkhead bulkhead) {
+        if (bulkhead.value() < 1 || bulkhead.maxQueue() < 0 || bulkhead.maxWait() < 0) {
+            String logstr = name + "的@Bulkhead参数不合法";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.name = name;
+        this.maxQueue = bulkhead.maxQueue();
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(bulkhead.maxWait());
+        this.permits = new Semaphore(bulkhead.value());
+    }
+
+    /**
+     * 获取隔舱，同一个名称只创建一次
+     *
+     * @param name
+     * @param bulkhead
+     * @return
+     */
+    public static Compartment create(String name, Bulkhead bulkhead) {
+        return COMPARTMENTS.computeIfAbsent(name, key -> new Compartment(key, bulkhead));
+    }
+
+    /**
+     * 所有隔舱
+     *
+     * @return
+     */
+    public static Map<String, Compartment> compartments() {
+        return ImmutableMap.copyOf(COMPARTMENTS);
+    }
+
+    /**
+     * 同步获取许可，获取成功后必须调用release
+     *
+     * @throws BulkheadFullException 队列已满或者等待超时
+     * @throws InterruptedIOException 等待被中断
+     */
+    public void acquire() throws BulkheadFullException, InterruptedIOException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (!enterQueue()) {
+            throw new BulkheadFullException(name);
+        }
+        try {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw new BulkheadFullException(name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待隔舱许可被中断");
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * 异步获取许可，获取到许可时执行task，task负责在请求结束后调用release
+     *
+     * @param task 获取到许可后执行
+     * @param expired 在队列中等待超时时执行
+     * @return 队列已满时返回false
+     */
+    public boolean submit(Runnable task, Runnable expired) {
+        if (permits.tryAcquire()) {
+            task.run();
+            return true;
+        }
+        if (!enterQueue()) {
+            return false;
+        }
+        Pending next = new Pending(task, expired);
+        pending.offer(next);
+        // 移出队列成功的一方负责执行，计时器和归还许可的线程不会重复处理同一个请求
+        next.timeout = TIMER.schedule(() -> expire(next), maxWaitNanos, TimeUnit.NANOSECONDS);
+        // 入队之前许可可能已经归还，需要再检查一次
+        drain();
+        return true;
+    }
+
+    /**
+     * 等待超时，还在队列中时拒绝
+     *
+     * @param next
+     */
+    private void expire(Pending next) {
+        if (pending.remove(next)) {
+            queued.decrementAndGet();
+            next.expired.run();
+        }
+    }
+
+    /** 归还许可，有异步请求在等待时直接交给它 */
+    public void release() {
+        permits.release();
+        drain();
+    }
+
+    private boolean enterQueue() {
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void drain() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            Pending next = pending.poll();
+            if (Objects.isNull(next)) {
+                permits.release();
+                continue;
+            }
+            queued.decrementAndGet();
+            ScheduledFuture<?> timeout = next.timeout;
+            if (!Objects.isNull(timeout)) {
+                timeout.cancel(false);
+            }
+            next.task.run();
+        }
+    }
+
+    /**
+     * 剩余的许可数量
+     *
+     * @return
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * 正在等待的请求数量
+     *
+     * @return
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    /** 等待中的异步请求 */
+    private static final class Pending {
+
+        private final Runnable task;
+
+        private final Runnable expired;
+
+        /** 等待超时的计时任务，出队时取消 */
+        private volatile ScheduledFuture<?> timeout;
+
+        private Pending(Runnable task, Runnable expired) {
+            this.task = task;
+            this.expired = expired;
+        }
+    }
+}
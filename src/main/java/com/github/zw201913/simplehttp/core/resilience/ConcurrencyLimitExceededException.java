@@ -0,0 +1,27 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+/**
+ * 超过并发限制，请求没有发送
+ *
+ * @author zouwei
+ */
+public class ConcurrencyLimitExceededException extends CallRejectedException {
+
+    private static final long serialVersionUID = -3041775144396276110L;
+
+    private final String limiter;
+
+    public ConcurrencyLimitExceededException(String limiter, int limit) {
+        super(limiter + "同时执行的请求达到" + limit + "个，请求没有发送");
+        this.limiter = limiter;
+    }
+
+    /**
+     * 并发限制器的名称
+     *
+     * @return
+     */
+    public String getLimiter() {
+        return limiter;
+    }
+}
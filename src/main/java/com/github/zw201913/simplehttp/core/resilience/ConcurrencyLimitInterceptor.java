@@ -0,0 +1,56 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * 按照主机限制同时执行的请求数量，并把每次请求的耗时交给并发限制器调整限制
+ *
+ * <p>放在限流拦截器之后、熔断拦截器之前，被熔断拒绝的请求不会成为耗时样本
+ *
+ * @author zouwei
+ */
+public class ConcurrencyLimitInterceptor implements Interceptor {
+
+    private final ConcurrencyLimiters concurrencyLimiters;
+
+    public ConcurrencyLimitInterceptor(ConcurrencyLimiters concurrencyLimiters) {
+        this.concurrencyLimiters = concurrencyLimiters;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        ConcurrencyLimiter limiter = concurrencyLimiters.limiter(request);
+        if (Objects.isNull(limiter)) {
+            return chain.proceed(request);
+        }
+        int inFlight = limiter.acquire();
+        if (inFlight < 0) {
+            throw new ConcurrencyLimitExceededException(limiter.getName(), limiter.getLimit());
+        }
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (CallRejectedException e) {
+            limiter.release();
+            throw e;
+        } catch (IOException | RuntimeException | Error e) {
+            if (chain.call().isCanceled()) {
+                limiter.release();
+            } else {
+                limiter.onSample(System.nanoTime() - start, inFlight, true);
+            }
+            throw e;
+        }
+        // 429、503说明下游已经过载
+        boolean overload = response.code() == 429 || response.code() == 503;
+        limiter.onSample(System.nanoTime() - start, inFlight, overload);
+        return response;
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 自适应并发限制策略，作为OkHttpClient工厂类的配置，每个主机按照这个策略调整允许同时执行的请求数量
+ *
+ * @author zouwei
+ */
+@Slf4j
+@Getter
+public final class ConcurrencyLimitPolicy {
+
+    /** 初始的并发数量 */
+    private final int initialLimit;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    /** 达到并发限制时最多等待的毫秒数，0表示直接拒绝 */
+    private final long queueTimeout;
+
+    public ConcurrencyLimitPolicy(int initialLimit, int minLimit, int maxLimit, long queueTimeout) {
+        if (minLimit < 1
+                || maxLimit < minLimit
+                || initialLimit < minLimit
+                || initialLimit > maxLimit
+                || queueTimeout < 0) {
+            String logstr = "并发限制策略的参数不合法";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueTimeout = queueTimeout;
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import lombok.Getter;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按照请求耗时自动调整允许同时执行的请求数量
+ *
+ * <p>使用梯度算法：短期耗时的EWMA明显高于长期耗时时，说明下游开始排队，按比例降低并发；耗时稳定时每次增加一点并发试探下游的容量。
+ * 请求异常、返回429或者503时并发数量乘以0.9
+ *
+ * <p>获取许可只需要一次CAS，达到限制需要等待时才加锁
+ *
+ * @author zouwei
+ */
+public final class ConcurrencyLimiter {
+
+    /** 长期耗时EWMA的系数，大约是最近600次请求 */
+    private static final double LONG_WINDOW = 1d / 600;
+
+    /** 短期耗时EWMA的系数，大约是最近10次请求 */
+    private static final double SHORT_WINDOW = 1d / 10;
+
+    /** 短期耗时不超过长期耗时的1.5倍时不降低并发 */
+    private static final double TOLERANCE = 1.5;
+
+    /** 新的并发数量按照这个比例平滑 */
+    private static final double SMOOTHING = 0.2;
+
+    /** 出现错误时并发数量乘以这个比例 */
+    private static final double BACKOFF = 0.9;
+
+    @Getter private final String name;
+
+    @Getter private final ConcurrencyLimitPolicy policy;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** 当前的并发限制，获取许可时不加锁读取 */
+    private volatile int limit;
+
+    /** 以下字段只在持有锁时读写 */
+    private double estimatedLimit;
+
+    private double shortRtt;
+
+    private double longRtt;
+
+    /** 等待许可的线程数量，在锁内修改 */
+    private volatile int waiters;
+
+    public ConcurrencyLimiter(String name, ConcurrencyLimitPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.limit = policy.getInitialLimit();
+        this.estimatedLimit = policy.getInitialLimit();
+    }
+
+    /**
+     * 获取一个许可，达到限制时最多等待策略中的queueTimeout，获取成功后必须调用onSample或者release
+     *
+     * @return 返回正在执行的请求数量（包含这个请求），没有获取到时返回-1
+     * @throws InterruptedIOException 等待被中断
+     */
+    public int acquire() throws InterruptedIOException {
+        int current = tryAcquire();
+        if (current > 0 || policy.getQueueTimeout() == 0) {
+            return current;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.getQueueTimeout());
+        synchronized (this) {
+            waiters++;
+            try {
+                for (; ; ) {
+                    current = tryAcquire();
+                    if (current > 0) {
+                        return current;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待并发许可被中断");
+            } finally {
+                waiters--;
+            }
+        }
+    }
+
+    private int tryAcquire() {
+        for (; ; ) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * 请求结束，记录耗时并调整并发限制
+     *
+     * @param nanos 耗时
+     * @param inFlightAtStart 请求开始时正在执行的请求数量
+     * @param overload 是否出现错误或者下游过载
+     */
+    public void onSample(long nanos, int inFlightAtStart, boolean overload) {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            if (overload) {
+                estimatedLimit = estimatedLimit * BACKOFF;
+            } else {
+                shortRtt = shortRtt == 0 ? nanos : shortRtt + (nanos - shortRtt) * SHORT_WINDOW;
+                longRtt = longRtt == 0 ? nanos : longRtt + (nanos - longRtt) * LONG_WINDOW;
+                if (longRtt / shortRtt > 2) {
+                    // 下游恢复之后长期耗时偏高，让它更快地下降
+                    longRtt = longRtt * 0.95;
+                }
+                if (inFlightAtStart * 2 < estimatedLimit) {
+                    // 并发远没有用满时耗时不能说明下游的容量，不调整
+                    wakeUp();
+                    return;
+                }
+                double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+                double queueSize = Math.sqrt(estimatedLimit);
+                double newLimit = estimatedLimit * gradient + queueSize;
+                estimatedLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            }
+            estimatedLimit =
+                    Math.max(policy.getMinLimit(), Math.min(policy.getMaxLimit(), estimatedLimit));
+            limit = (int) estimatedLimit;
+            wakeUp();
+        }
+    }
+
+    /** 请求被取消或者被其他策略拒绝，没有耗时样本，只归还许可 */
+    public void release() {
+        inFlight.decrementAndGet();
+        if (waiters > 0) {
+            synchronized (this) {
+                wakeUp();
+            }
+        }
+    }
+
+    private void wakeUp() {
+        if (waiters > 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * 当前的并发限制
+     *
+     * @return
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 正在执行的请求数量
+     *
+     * @return
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 短期耗时的EWMA（毫秒）
+     *
+     * @return
+     */
+    public synchronized double shortRtt() {
+        return shortRtt / 1000_000;
+    }
+
+    /**
+     * 长期耗时的EWMA（毫秒）
+     *
+     * @return
+     */
+    public synchronized double longRtt() {
+        return longRtt / 1000_000;
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.google.common.collect.Maps;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 一个OkHttpClient工厂类的所有并发限制器，每个主机和端口一个
+ *
+ * @author zouwei
+ */
+public final class ConcurrencyLimiters {
+
+    private final ConcurrencyLimitPolicy policy;
+
+    private final ConcurrentMap<String, ConcurrencyLimiter> limiters = Maps.newConcurrentMap();
+
+    /** @param policy 为null时不限制并发 */
+    public ConcurrencyLimiters(ConcurrencyLimitPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * 获取请求对应的并发限制器
+     *
+     * @param request
+     * @return 不限制并发时返回null
+     */
+    public ConcurrencyLimiter limiter(Request request) {
+        if (Objects.isNull(policy)) {
+            return null;
+        }
+        HttpUrl url = request.url();
+        String name = url.host() + ":" + url.port();
+        ConcurrencyLimiter limiter = limiters.get(name);
+        if (Objects.isNull(limiter)) {
+            limiter = limiters.computeIfAbsent(name, key -> new ConcurrencyLimiter(key, policy));
+        }
+        return limiter;
+    }
+
+    /**
+     * 所有已经创建的并发限制器，用于查看状态
+     *
+     * @return
+     */
+    public Map<String, ConcurrencyLimiter> limiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求的截止时间，使用System.nanoTime计算，不受系统时间调整的影响
+ *
+ * <p>当前线程设置了截止时间时，代理方法发出的请求不会超过剩余的时间，剩余的毫秒数通过HEADER传给下游服务；已经超时的请求直接失败，不会发送
+ *
+ * <p>截止时间保存在当前线程中，在其他线程中发请求时需要自己传递
+ *
+ * @author zouwei
+ */
+public final class Deadline {
+
+    /** 传给下游服务的请求头，值是剩余的毫秒数 */
+    public static final String HEADER = "X-Request-Timeout";
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 从现在开始millis毫秒后截止
+     *
+     * @param millis
+     * @return
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * 当前线程的截止时间
+     *
+     * @return 没有设置时返回null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 设置当前线程的截止时间，为null时清除
+     *
+     * @param deadline
+     */
+    public static void set(Deadline deadline) {
+        if (Objects.isNull(deadline)) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+    }
+
+    /**
+     * 剩余的时间，已经超时时返回0
+     *
+     * @param unit
+     * @return
+     */
+    public long remaining(TimeUnit unit) {
+        return unit.convert(Math.max(deadlineNanos - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 是否已经超时
+     *
+     * @return
+     */
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 较早的一个截止时间
+     *
+     * @param other 可以为null
+     * @return
+     */
+    public Deadline min(Deadline other) {
+        if (Objects.isNull(other) || deadlineNanos - other.deadlineNanos <= 0) {
+            return this;
+        }
+        return other;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline(" + remaining(TimeUnit.MILLISECONDS) + "ms)";
+    }
+}
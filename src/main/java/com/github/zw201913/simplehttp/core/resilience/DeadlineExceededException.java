@@ -0,0 +1,15 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+/**
+ * 发送请求前已经超过截止时间，请求没有发送
+ *
+ * @author zouwei
+ */
+public class DeadlineExceededException extends CallRejectedException {
+
+    private static final long serialVersionUID = -9066237289073195672L;
+
+    public DeadlineExceededException(String url) {
+        super("已经超过截止时间，请求" + url + "没有发送");
+    }
+}
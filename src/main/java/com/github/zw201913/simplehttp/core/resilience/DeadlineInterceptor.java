@@ -0,0 +1,37 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求带有截止时间时，已经超时的请求直接失败，没有超时的请求把剩余的毫秒数放在请求头中传给下游服务
+ *
+ * <p>放在重试之后，每次重试都重新检查截止时间，请求头中是发送这次请求时剩余的时间
+ *
+ * @author zouwei
+ */
+public class DeadlineInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Deadline deadline = request.tag(Deadline.class);
+        if (Objects.isNull(deadline)) {
+            return chain.proceed(request);
+        }
+        if (deadline.isExpired()) {
+            throw new DeadlineExceededException(request.url().toString());
+        }
+        return chain.proceed(
+                request.newBuilder()
+                        .header(
+                                Deadline.HEADER,
+                                String.valueOf(deadline.remaining(TimeUnit.MILLISECONDS)))
+                        .build());
+    }
+}
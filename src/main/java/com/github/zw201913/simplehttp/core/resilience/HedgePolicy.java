@@ -0,0 +1,118 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.annotation.Hedge;
+import com.google.common.collect.ImmutableSet;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对冲策略，每个方法一个，包含对冲预算和请求耗时的统计
+ *
+ * @author zouwei
+ */
+@Slf4j
+public final class HedgePolicy {
+
+    private static final Set<String> IDEMPOTENT_METHODS = ImmutableSet.of("GET", "HEAD");
+
+    /** 这些状态码说明服务端暂时不可用，另一个请求还可能成功 */
+    private static final Set<Integer> RETRYABLE_STATUSES = ImmutableSet.of(408, 429, 502, 503, 504);
+
+    /** 计算百分位时保留的样本数量 */
+    private static final int WINDOW_SIZE = 1024;
+
+    @Getter private final long delay;
+
+    @Getter private final boolean nonIdempotent;
+
+    /** 对冲预算，复用重试预算的令牌桶 */
+    private final RetryBudget budget;
+
+    /** 没有设置百分位时为null */
+    private final LatencyWindow latencyWindow;
+
+    public HedgePolicy(long delay, double percentile, double budget, boolean nonIdempotent) {
+        if (delay < 0 || percentile < 0 || percentile > 100 || budget <= 0) {
+            String logstr = "对冲策略的参数不合法";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.delay = delay;
+        this.nonIdempotent = nonIdempotent;
+        this.budget = new RetryBudget(budget, 1, 10);
+        this.latencyWindow = percentile > 0 ? new LatencyWindow(WINDOW_SIZE, percentile) : null;
+    }
+
+    /**
+     * 根据注解创建对冲策略
+     *
+     * @param hedge
+     * @return
+     */
+    public static HedgePolicy of(Hedge hedge) {
+        return new HedgePolicy(
+                hedge.delay(), hedge.percentile(), hedge.budget(), hedge.nonIdempotent());
+    }
+
+    /**
+     * 这个请求方式是否可以对冲
+     *
+     * @param method
+     * @return
+     */
+    public boolean canHedge(String method) {
+        return nonIdempotent || IDEMPOTENT_METHODS.contains(method);
+    }
+
+    /**
+     * 响应能否直接作为结果，暂时不可用的响应需要等待另一个请求
+     *
+     * @param code
+     * @return
+     */
+    public boolean isDecisive(int code) {
+        return !RETRYABLE_STATUSES.contains(code);
+    }
+
+    /**
+     * 发送对冲请求前等待的毫秒数
+     *
+     * @return
+     */
+    public long hedgeDelay() {
+        if (Objects.isNull(latencyWindow)) {
+            return delay;
+        }
+        long nanos = latencyWindow.percentile();
+        return nanos < 0 ? delay : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /** 每个请求调用一次，放入对冲预算 */
+    public void onRequest() {
+        budget.deposit();
+    }
+
+    /**
+     * 尝试发送一个对冲请求
+     *
+     * @return 超出预算时返回false
+     */
+    public boolean tryHedge() {
+        return budget.tryAcquire();
+    }
+
+    /**
+     * 记录成功请求的耗时
+     *
+     * @param nanos
+     */
+    public void record(long nanos) {
+        if (!Objects.isNull(latencyWindow)) {
+            latencyWindow.record(nanos);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.core.http.AbstractHttp;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对冲请求，第一个请求超过等待时间还没有响应时再发送一个相同的请求，先返回的有效响应获胜，另一个请求被取消
+ *
+ * <p>同步执行时第一个请求在当前线程中发送，只有对冲请求在OkHttp的线程池中发送；502、503这类暂时不可用的响应
+ * 只在另一个请求也没有有效响应时才返回
+ *
+ * @author zouwei
+ */
+@Slf4j
+public final class HedgedCall implements Call {
+
+    /** 发送对冲请求的计时器 */
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "simple-http-hedge-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private final AbstractHttp http;
+
+    private final Request request;
+
+    private final HedgePolicy policy;
+
+    private boolean executed;
+
+    private boolean canceled;
+
+    /** 已经有响应或者全部失败 */
+    private boolean finished;
+
+    private Call primary;
+
+    private Call hedge;
+
+    /** 还没有结果的请求数量 */
+    private int outstanding;
+
+    /** 暂时不可用的响应，另一个请求也没有有效响应时返回 */
+    private Response pending;
+
+    private ScheduledFuture<?> hedgeTask;
+
+    private Callback responseCallback;
+
+    private long startNanos;
+
+    public HedgedCall(AbstractHttp http, Request request, HedgePolicy policy) {
+        this.http = http;
+        this.request = request;
+        this.policy = policy;
+    }
+
+    @Override
+    public Request request() {
+        return request;
+    }
+
+    @Override
+    public Response execute() throws IOException {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        Call call =
+                start(
+                        new Callback() {
+                            @Override
+                            public void onFailure(Call call, IOException e) {
+                                future.completeExceptionally(e);
+                            }
+
+                            @Override
+                            public void onResponse(Call call, Response response) {
+                                if (!future.complete(response)) {
+                                    response.close();
+                                }
+                            }
+                        });
+        scheduleHedge();
+        // 第一个请求不占用OkHttp线程池的名额，对冲请求获胜时这里的请求被取消
+        AttemptCallback attempt = new AttemptCallback();
+        Response response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            attempt.onFailure(call, e);
+            return await(future);
+        }
+        attempt.onResponse(call, response);
+        return await(future);
+    }
+
+    /**
+     * 等待获胜的响应
+     *
+     * @param future
+     * @return
+     * @throws IOException
+     */
+    private Response await(CompletableFuture<Response> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待对冲请求被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @Override
+    public void enqueue(Callback responseCallback) {
+        start(responseCallback).enqueue(new AttemptCallback());
+        scheduleHedge();
+    }
+
+    /**
+     * 创建第一个请求
+     *
+     * @param responseCallback
+     * @return
+     */
+    private Call start(Callback responseCallback) {
+        synchronized (this) {
+            if (executed) {
+                throw new IllegalStateException("Already Executed");
+            }
+            executed = true;
+            this.responseCallback = responseCallback;
+            this.startNanos = System.nanoTime();
+            this.primary = http.newCall(request);
+            this.outstanding = 1;
+        }
+        policy.onRequest();
+        return primary;
+    }
+
+    private synchronized void scheduleHedge() {
+        if (!finished && !canceled) {
+            hedgeTask = TIMER.schedule(this::sendHedge, policy.hedgeDelay(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** 等待时间到了还没有结果时发送对冲请求 */
+    private void sendHedge() {
+        Call call;
+        synchronized (this) {
+            if (finished || canceled || !policy.tryHedge()) {
+                return;
+            }
+            call = http.newCall(request);
+            hedge = call;
+            outstanding++;
+        }
+        call.enqueue(new AttemptCallback());
+    }
+
+    @Override
+    public void cancel() {
+        Call primaryCall;
+        Call hedgeCall;
+        Response discarded;
+        synchronized (this) {
+            canceled = true;
+            primaryCall = primary;
+            hedgeCall = hedge;
+            discarded = pending;
+            pending = null;
+            if (!Objects.isNull(hedgeTask)) {
+                hedgeTask.cancel(false);
+            }
+        }
+        if (!Objects.isNull(discarded)) {
+            discarded.close();
+        }
+        if (!Objects.isNull(primaryCall)) {
+            primaryCall.cancel();
+        }
+        if (!Objects.isNull(hedgeCall)) {
+            hedgeCall.cancel();
+        }
+    }
+
+    @Override
+    public synchronized boolean isExecuted() {
+        return executed;
+    }
+
+    @Override
+    public synchronized boolean isCanceled() {
+        return canceled;
+    }
+
+    @Override
+    public Timeout timeout() {
+        return Timeout.NONE;
+    }
+
+    @Override
+    public Call clone() {
+        return new HedgedCall(http, request, policy);
+    }
+
+    /** 每个请求的回调，第一个有效响应获胜，请求失败时继续等待另一个请求 */
+    private final class AttemptCallback implements Callback {
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            Response fallback;
+            synchronized (HedgedCall.this) {
+                outstanding--;
+                // 另一个请求还在执行时继续等待；第一个请求在对冲之前失败时直接失败，重试由重试策略负责
+                if (finished || outstanding > 0) {
+                    return;
+                }
+                finish();
+                fallback = pending;
+                pending = null;
+            }
+            if (Objects.isNull(fallback)) {
+                responseCallback.onFailure(HedgedCall.this, e);
+                return;
+            }
+            try {
+                responseCallback.onResponse(HedgedCall.this, fallback);
+            } catch (IOException ex) {
+                log.warn(request.url() + "处理对冲请求的响应失败", ex);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            Call loser = null;
+            Response discarded = null;
+            boolean decisive = policy.isDecisive(response.code());
+            synchronized (HedgedCall.this) {
+                outstanding--;
+                if (finished) {
+                    discarded = response;
+                } else if (!decisive && outstanding > 0) {
+                    // 暂时不可用的响应先保留，等待另一个请求的结果
+                    if (Objects.isNull(pending)) {
+                        pending = response;
+                    } else {
+                        discarded = response;
+                    }
+                    response = null;
+                } else {
+                    finish();
+                    discarded = pending;
+                    pending = null;
+                    if (outstanding > 0) {
+                        loser = call == primary ? hedge : primary;
+                    }
+                }
+            }
+            if (!Objects.isNull(discarded)) {
+                discarded.close();
+            }
+            if (Objects.isNull(response) || response == discarded) {
+                return;
+            }
+            if (!Objects.isNull(loser)) {
+                loser.cancel();
+            }
+            if (decisive) {
+                policy.record(System.nanoTime() - startNanos);
+            }
+            responseCallback.onResponse(HedgedCall.this, response);
+        }
+
+        private void finish() {
+            finished = true;
+            if (!Objects.isNull(hedgeTask)) {
+                hedgeTask.cancel(false);
+            }
+        }
+    }
+}
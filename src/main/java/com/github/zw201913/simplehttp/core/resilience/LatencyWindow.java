@@ -0,0 +1,64 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录最近一段请求的耗时，用来计算百分位
+ *
+ * <p>使用固定大小的环形数组，并发写入时允许覆盖；百分位每记录一定数量的样本重新计算一次，读取时不排序
+ *
+ * @author zouwei
+ */
+public final class LatencyWindow {
+
+    /** 每记录多少个样本重新计算一次百分位 */
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private final long[] samples;
+
+    private final double percentile;
+
+    private final AtomicLong count = new AtomicLong();
+
+    /** 计算好的百分位，没有足够样本时为-1 */
+    private volatile long cached = -1;
+
+    /**
+     * @param size 保留的样本数量
+     * @param percentile 需要计算的百分位，0到100之间
+     */
+    public LatencyWindow(int size, double percentile) {
+        this.samples = new long[size];
+        this.percentile = percentile;
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos
+     */
+    public void record(long nanos) {
+        long index = count.getAndIncrement();
+        samples[(int) (index % samples.length)] = nanos;
+        if ((index + 1) % RECOMPUTE_INTERVAL == 0) {
+            recompute(Math.min(index + 1, samples.length));
+        }
+    }
+
+    /**
+     * 最近请求耗时的百分位
+     *
+     * @return 没有足够样本时返回-1
+     */
+    public long percentile() {
+        return cached;
+    }
+
+    private void recompute(long size) {
+        long[] copy = Arrays.copyOf(samples, (int) size);
+        Arrays.sort(copy);
+        int rank = (int) Math.ceil(percentile / 100 * copy.length) - 1;
+        cached = copy[Math.max(0, Math.min(rank, copy.length - 1))];
+    }
+}
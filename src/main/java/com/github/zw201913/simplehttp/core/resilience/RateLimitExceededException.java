@@ -0,0 +1,27 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+/**
+ * 超过限流速率，请求没有发送
+ *
+ * @author zouwei
+ */
+public class RateLimitExceededException extends CallRejectedException {
+
+    private static final long serialVersionUID = 8442832611839423962L;
+
+    private final String limiter;
+
+    public RateLimitExceededException(String limiter) {
+        super("超过限流器" + limiter + "的速率，请求没有发送");
+        this.limiter = limiter;
+    }
+
+    /**
+     * 限流器的名称
+     *
+     * @return
+     */
+    public String getLimiter() {
+        return limiter;
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发送请求前从限流器获取许可，需要等待时在当前线程等待
+ *
+ * <p>放在重试拦截器之后、熔断拦截器之前，每次重试都需要许可，等待的时间不计入熔断器的慢调用
+ *
+ * <p>等待时间不会超过整个请求的超时时间和截止时间，超过时直接拒绝；等待期间请求被取消时立即结束
+ *
+ * @author zouwei
+ */
+public class RateLimitInterceptor implements Interceptor {
+
+    /** 等待期间检查请求是否被取消的间隔 */
+    private static final long CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final RateLimiters rateLimiters;
+
+    public RateLimitInterceptor(RateLimiters rateLimiters) {
+        this.rateLimiters = rateLimiters;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        RateLimiter limiter = rateLimiters.limiter(request);
+        if (Objects.isNull(limiter)) {
+            return chain.proceed(request);
+        }
+        long wait = limiter.reserve(maxWaitNanos(chain, limiter));
+        if (wait < 0) {
+            throw new RateLimitExceededException(limiter.getName());
+        }
+        if (wait > 0) {
+            await(chain, wait);
+        }
+        return chain.proceed(request);
+    }
+
+    /**
+     * 最多等待的时间，不超过整个请求的超时时间和截止时间
+     *
+     * @param chain
+     * @param limiter
+     * @return
+     */
+    private static long maxWaitNanos(Chain chain, RateLimiter limiter) {
+        long maxWait = limiter.getPolicy().maxWaitNanos();
+        long callTimeout = chain.call().timeout().timeoutNanos();
+        if (callTimeout > 0) {
+            maxWait = Math.min(maxWait, callTimeout);
+        }
+        Deadline deadline = chain.request().tag(Deadline.class);
+        if (!Objects.isNull(deadline)) {
+            maxWait = Math.min(maxWait, deadline.remaining(TimeUnit.NANOSECONDS));
+        }
+        return maxWait;
+    }
+
+    /**
+     * 分段等待，请求超时或者被取消时不再等待
+     *
+     * @param chain
+     * @param nanos
+     * @throws IOException
+     */
+    private static void await(Chain chain, long nanos) throws IOException {
+        long end = System.nanoTime() + nanos;
+        for (long remaining = nanos; remaining > 0; remaining = end - System.nanoTime()) {
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(remaining, CHECK_INTERVAL_NANOS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("限流等待被中断");
+            }
+        }
+        if (chain.call().isCanceled()) {
+            throw new IOException("Canceled");
+        }
+    }
+}
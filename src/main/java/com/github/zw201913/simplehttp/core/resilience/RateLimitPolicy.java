@@ -0,0 +1,67 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.annotation.RateLimit;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流策略，可以由@RateLimit创建，也可以作为OkHttpClient工厂类的默认策略
+ *
+ * @author zouwei
+ */
+@Slf4j
+@Getter
+@EqualsAndHashCode
+public final class RateLimitPolicy {
+
+    private final double permitsPerSecond;
+
+    private final int burst;
+
+    private final RateLimit.Mode mode;
+
+    private final long timeout;
+
+    public RateLimitPolicy(double permitsPerSecond, int burst, RateLimit.Mode mode, long timeout) {
+        if (!(permitsPerSecond > 0) || burst < 1 || Objects.isNull(mode) || timeout < 0) {
+            String logstr = "限流策略的参数不合法";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.mode = mode;
+        this.timeout = timeout;
+    }
+
+    /**
+     * 根据注解创建限流策略
+     *
+     * @param rateLimit
+     * @return
+     */
+    public static RateLimitPolicy of(RateLimit rateLimit) {
+        return new RateLimitPolicy(
+                rateLimit.value(), rateLimit.burst(), rateLimit.mode(), rateLimit.timeout());
+    }
+
+    /**
+     * 获取许可时最多等待的纳秒数
+     *
+     * @return
+     */
+    public long maxWaitNanos() {
+        switch (mode) {
+            case BLOCK:
+                return Long.MAX_VALUE;
+            case FAIL_FAST:
+                return 0;
+            default:
+                return TimeUnit.MILLISECONDS.toNanos(timeout);
+        }
+    }
+}
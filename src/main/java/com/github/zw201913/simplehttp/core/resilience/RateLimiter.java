@@ -0,0 +1,70 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁的限流器，按照GCRA算法记录下一个许可的理论发放时间，只需要一次CAS就能预约许可
+ *
+ * <p>预约成功后返回需要等待的纳秒数，等待中的请求按照预约的先后顺序发送
+ *
+ * @author zouwei
+ */
+public final class RateLimiter {
+
+    @Getter private final String name;
+
+    @Getter private final RateLimitPolicy policy;
+
+    /** 每个许可的间隔纳秒数 */
+    private final long interval;
+
+    /** 允许突发的纳秒数 */
+    private final long tolerance;
+
+    /** 下一个许可的理论发放时间 */
+    private final AtomicLong tat;
+
+    public RateLimiter(String name, RateLimitPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.interval = Math.max(1, (long) (1000_000_000L / policy.getPermitsPerSecond()));
+        this.tolerance = interval * policy.getBurst();
+        this.tat = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 预约一个许可
+     *
+     * @param maxWaitNanos 最多等待的纳秒数
+     * @return 需要等待的纳秒数，等待时间超过maxWaitNanos时返回-1，不占用许可
+     */
+    public long reserve(long maxWaitNanos) {
+        for (; ; ) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long next = (current - now > 0 ? current : now) + interval;
+            long wait = next - now - tolerance;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return Math.max(wait, 0);
+            }
+        }
+    }
+
+    /**
+     * 现在可以直接获取的许可数量
+     *
+     * @return
+     */
+    public int availablePermits() {
+        long ahead = tat.get() - System.nanoTime();
+        if (ahead <= 0) {
+            return policy.getBurst();
+        }
+        return (int) Math.max(0, (tolerance - ahead) / interval);
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.google.common.collect.Maps;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个OkHttpClient工厂类的所有限流器，按照主机和端口或者方法名区分
+ *
+ * <p>按照主机限流时，和默认策略不同的@RateLimit使用自己的限流器，名称是主机和端口加上#策略序号，参数相同的策略共享限流器
+ *
+ * @author zouwei
+ */
+public final class RateLimiters {
+
+    private final RateLimitPolicy defaultPolicy;
+
+    private final ConcurrentMap<String, RateLimiter> limiters = Maps.newConcurrentMap();
+
+    /** 和默认策略不同的策略对应的序号 */
+    private final ConcurrentMap<RateLimitPolicy, Integer> policyIds = Maps.newConcurrentMap();
+
+    private final AtomicInteger policyCount = new AtomicInteger();
+
+    /** @param defaultPolicy 请求上没有指定限流策略时使用，为null时这些请求不限流 */
+    public RateLimiters(RateLimitPolicy defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    /**
+     * 获取限流器，不存在时使用传入的策略创建
+     *
+     * @param name
+     * @param policy
+     * @return
+     */
+    public RateLimiter limiter(String name, RateLimitPolicy policy) {
+        RateLimiter limiter = limiters.get(name);
+        if (Objects.isNull(limiter)) {
+            limiter = limiters.computeIfAbsent(name, key -> new RateLimiter(key, policy));
+        }
+        return limiter;
+    }
+
+    /**
+     * 获取请求对应的限流器：请求的tag中有限流器时直接使用，否则按照主机和端口获取
+     *
+     * @param request
+     * @return 请求不需要限流时返回null
+     */
+    public RateLimiter limiter(Request request) {
+        RateLimiter limiter = request.tag(RateLimiter.class);
+        if (!Objects.isNull(limiter)) {
+            return limiter;
+        }
+        RateLimitPolicy policy = request.tag(RateLimitPolicy.class);
+        if (Objects.isNull(policy)) {
+            policy = defaultPolicy;
+        }
+        if (Objects.isNull(policy)) {
+            return null;
+        }
+        HttpUrl url = request.url();
+        String name = url.host() + ":" + url.port();
+        if (!policy.equals(defaultPolicy)) {
+            name += "#" + policyIds.computeIfAbsent(policy, key -> policyCount.incrementAndGet());
+        }
+        return limiter(name, policy);
+    }
+
+    /**
+     * 所有已经创建的限流器，用于查看状态
+     *
+     * @return
+     */
+    public Map<String, RateLimiter> limiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+}
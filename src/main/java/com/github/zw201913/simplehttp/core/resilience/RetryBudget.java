@@ -0,0 +1,110 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重试预算，令牌桶实现，每个OkHttpClient工厂类一个
+ *
+ * <p>每个请求放入ratio个令牌，每次重试消耗一个令牌，另外每秒固定补充minRetriesPerSecond个令牌，令牌数不超过maxTokens。这样重试的数量不会超过请求量的一定比例
+ *
+ * @author zouwei
+ */
+@Slf4j
+public final class RetryBudget {
+
+    /** 令牌使用千分之一为单位保存 */
+    private static final long UNIT = 1000;
+
+    /** 长时间没有请求时最多按照这段时间补充，避免溢出 */
+    private static final long MAX_REFILL_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final long depositUnits;
+
+    private final long minRetriesPerSecond;
+
+    private final long maxUnits;
+
+    private final AtomicLong balance;
+
+    private final AtomicLong lastRefill;
+
+    /**
+     * @param ratio 重试数量占请求数量的比例，例如0.1
+     * @param minRetriesPerSecond 请求量很少时每秒也允许的重试数量
+     * @param maxTokens 最多积累的令牌数
+     */
+    public RetryBudget(double ratio, int minRetriesPerSecond, int maxTokens) {
+        if (ratio < 0 || minRetriesPerSecond < 0 || maxTokens < 1) {
+            String logstr = "重试预算的参数不合法";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.depositUnits = (long) (ratio * UNIT);
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.maxUnits = maxTokens * UNIT;
+        this.balance = new AtomicLong(maxUnits);
+        this.lastRefill = new AtomicLong(System.nanoTime());
+    }
+
+    /** 每个请求调用一次，放入令牌 */
+    public void deposit() {
+        add(depositUnits);
+    }
+
+    /**
+     * 尝试为一次重试消耗一个令牌
+     *
+     * @return 没有令牌时返回false，不能重试
+     */
+    public boolean tryAcquire() {
+        refill();
+        for (; ; ) {
+            long current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - UNIT)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 当前可用的令牌数
+     *
+     * @return
+     */
+    public double available() {
+        refill();
+        return (double) balance.get() / UNIT;
+    }
+
+    /** 按照经过的时间补充令牌 */
+    private void refill() {
+        if (minRetriesPerSecond == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastRefill.get();
+        long elapsed = Math.min(now - last, MAX_REFILL_NANOS);
+        // 使用double计算并且不超过令牌上限，每秒补充的数量很大时也不会溢出
+        double refill = (double) elapsed * minRetriesPerSecond * UNIT / TimeUnit.SECONDS.toNanos(1);
+        long units = (long) Math.min(refill, maxUnits);
+        if (units > 0 && lastRefill.compareAndSet(last, now)) {
+            add(units);
+        }
+    }
+
+    private void add(long units) {
+        for (; ; ) {
+            long current = balance.get();
+            long next = Math.min(current + units, maxUnits);
+            if (current == next || balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+}
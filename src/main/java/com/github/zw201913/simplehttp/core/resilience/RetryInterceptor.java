@@ -0,0 +1,105 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+
+/**
+ * 按照重试策略重试请求，请求上没有指定策略时使用OkHttpClient工厂类的默认策略
+ *
+ * <p>异步请求在OkHttp的线程池中等待，等待期间Call被取消时直接结束
+ *
+ * @author zouwei
+ */
+@Slf4j
+public class RetryInterceptor implements Interceptor {
+
+    private final RetryPolicy defaultPolicy;
+
+    private final RetryBudget budget;
+
+    /**
+     * @param defaultPolicy 请求上没有指定策略时使用，可以为null
+     * @param budget 重试预算，为null时不限制
+     */
+    public RetryInterceptor(RetryPolicy defaultPolicy, RetryBudget budget) {
+        this.defaultPolicy = defaultPolicy;
+        this.budget = budget;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!Objects.isNull(budget)) {
+            budget.deposit();
+        }
+        RetryPolicy policy = request.tag(RetryPolicy.class);
+        if (Objects.isNull(policy)) {
+            policy = defaultPolicy;
+        }
+        if (Objects.isNull(policy) || !policy.canRetry(request.method())) {
+            return chain.proceed(request);
+        }
+        for (int attempt = 1; ; attempt++) {
+            boolean last = attempt >= policy.getMaxAttempts();
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                // 被熔断、限流拒绝的请求重试没有意义
+                if (last
+                        || chain.call().isCanceled()
+                        || e instanceof CallRejectedException
+                        || !policy.retryException(e)) {
+                    throw e;
+                }
+                if (!acquire(request)) {
+                    throw e;
+                }
+                log.warn(request.url() + "第" + attempt + "次请求失败，准备重试", e);
+                backoff(chain, policy, attempt);
+                continue;
+            }
+            if (last || !policy.retryStatus(response.code()) || !acquire(request)) {
+                return response;
+            }
+            log.warn(request.url() + "第" + attempt + "次请求返回" + response.code() + "，准备重试");
+            response.close();
+            backoff(chain, policy, attempt);
+        }
+    }
+
+    /**
+     * 从重试预算中获取一次重试的机会
+     *
+     * @param request
+     * @return
+     */
+    private boolean acquire(Request request) {
+        if (Objects.isNull(budget) || budget.tryAcquire()) {
+            return true;
+        }
+        log.warn(request.url() + "超出重试预算，不再重试");
+        return false;
+    }
+
+    private static void backoff(Chain chain, RetryPolicy policy, int attempt) throws IOException {
+        long backoff = policy.backoff(attempt);
+        if (backoff > 0) {
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("重试等待被中断");
+            }
+        }
+        if (chain.call().isCanceled()) {
+            throw new IOException("Canceled");
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.annotation.Retry;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重试策略，可以由@Retry创建，也可以作为OkHttpClient工厂类的默认策略
+ *
+ * @author zouwei
+ */
+@Slf4j
+@Getter
+public final class RetryPolicy {
+
+    /** 幂等的请求方式 */
+    private static final Set<String> IDEMPOTENT_METHODS =
+            ImmutableSet.of("GET", "HEAD", "PUT", "DELETE", "OPTIONS", "TRACE");
+
+    private final int maxAttempts;
+
+    private final long initialBackoff;
+
+    private final long maxBackoff;
+
+    private final double multiplier;
+
+    private final double jitter;
+
+    private final Set<Integer> statuses;
+
+    private final Class<? extends IOException>[] exceptions;
+
+    private final boolean nonIdempotent;
+
+    public RetryPolicy(
+            int maxAttempts,
+            long initialBackoff,
+            long maxBackoff,
+            double multiplier,
+            double jitter,
+            int[] statuses,
+            Class<? extends IOException>[] exceptions,
+            boolean nonIdempotent) {
+        if (maxAttempts < 1
+                || initialBackoff < 0
+                || maxBackoff < initialBackoff
+                || multiplier < 1
+                || jitter < 0
+                || jitter > 1) {
+            String logstr = "重试策略的参数不合法";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.statuses = ImmutableSet.copyOf(Ints.asList(statuses));
+        this.exceptions = exceptions.clone();
+        this.nonIdempotent = nonIdempotent;
+    }
+
+    /**
+     * 根据注解创建重试策略
+     *
+     * @param retry
+     * @return
+     */
+    public static RetryPolicy of(Retry retry) {
+        return new RetryPolicy(
+                retry.maxAttempts(),
+                retry.initialBackoff(),
+                retry.maxBackoff(),
+                retry.multiplier(),
+                retry.jitter(),
+                retry.statuses(),
+                retry.exceptions(),
+                retry.nonIdempotent());
+    }
+
+    /**
+     * 这个请求方式是否可以重试
+     *
+     * @param method
+     * @return
+     */
+    public boolean canRetry(String method) {
+        return maxAttempts > 1 && (nonIdempotent || IDEMPOTENT_METHODS.contains(method));
+    }
+
+    /**
+     * 响应状态码是否需要重试
+     *
+     * @param code
+     * @return
+     */
+    public boolean retryStatus(int code) {
+        return statuses.contains(code);
+    }
+
+    /**
+     * 异常是否需要重试
+     *
+     * @param e
+     * @return
+     */
+    public boolean retryException(IOException e) {
+        for (Class<? extends IOException> exception : exceptions) {
+            if (exception.isInstance(e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 第几次重试前需要等待的毫秒数
+     *
+     * @param retry 从1开始
+     * @return
+     */
+    public long backoff(int retry) {
+        double backoff = initialBackoff * Math.pow(multiplier, retry - 1);
+        backoff = Math.min(backoff, maxBackoff);
+        double random = ThreadLocalRandom.current().nextDouble();
+        return (long) (backoff * (1 - jitter * random));
+    }
+}
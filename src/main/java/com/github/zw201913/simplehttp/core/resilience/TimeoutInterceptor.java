@@ -0,0 +1,40 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按照请求tag中的超时策略修改连接、读取、写入的超时时间，共享同一个OkHttpClient的连接池和线程池
+ *
+ * <p>放在所有拦截器之前，重试和对冲的每次请求都使用相同的超时时间；整个请求的超时时间在创建Call时设置，
+ * 截止时间由DeadlineInterceptor在每次请求前检查
+ *
+ * @author zouwei
+ */
+public class TimeoutInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        TimeoutPolicy policy = request.tag(TimeoutPolicy.class);
+        if (Objects.isNull(policy)) {
+            return chain.proceed(request);
+        }
+        Chain timed = chain;
+        if (policy.getConnect() != TimeoutPolicy.UNSET) {
+            timed = timed.withConnectTimeout((int) policy.getConnect(), TimeUnit.MILLISECONDS);
+        }
+        if (policy.getRead() != TimeoutPolicy.UNSET) {
+            timed = timed.withReadTimeout((int) policy.getRead(), TimeUnit.MILLISECONDS);
+        }
+        if (policy.getWrite() != TimeoutPolicy.UNSET) {
+            timed = timed.withWriteTimeout((int) policy.getWrite(), TimeUnit.MILLISECONDS);
+        }
+        return timed.proceed(request);
+    }
+}
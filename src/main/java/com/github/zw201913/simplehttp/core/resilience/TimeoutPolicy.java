@@ -0,0 +1,78 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.annotation.Timeout;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * 超时策略（毫秒），-1表示使用OkHttpClient的设置，0表示不超时
+ *
+ * @author zouwei
+ */
+@Slf4j
+@Getter
+public final class TimeoutPolicy {
+
+    /** 没有设置 */
+    public static final long UNSET = -1;
+
+    private final long connect;
+
+    private final long read;
+
+    private final long write;
+
+    private final long call;
+
+    public TimeoutPolicy(long connect, long read, long write, long call) {
+        if (!valid(connect) || !valid(read) || !valid(write) || call < UNSET) {
+            String logstr = "超时策略的参数不合法";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.connect = connect;
+        this.read = read;
+        this.write = write;
+        this.call = call;
+    }
+
+    /**
+     * OkHttp的连接、读取、写入超时时间使用int毫秒
+     *
+     * @param millis
+     * @return
+     */
+    private static boolean valid(long millis) {
+        return millis >= UNSET && millis <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * 合并方法和接口上的@Timeout，方法上设置了的值优先
+     *
+     * @param methodTimeout 方法上的注解，可以为null
+     * @param typeTimeout 接口上的注解，可以为null
+     * @return 都为null时返回null
+     */
+    public static TimeoutPolicy of(Timeout methodTimeout, Timeout typeTimeout) {
+        if (Objects.isNull(methodTimeout) && Objects.isNull(typeTimeout)) {
+            return null;
+        }
+        return new TimeoutPolicy(
+                merge(methodTimeout, typeTimeout, Timeout::connect),
+                merge(methodTimeout, typeTimeout, Timeout::read),
+                merge(methodTimeout, typeTimeout, Timeout::write),
+                merge(methodTimeout, typeTimeout, Timeout::call));
+    }
+
+    private static long merge(
+            Timeout methodTimeout, Timeout typeTimeout, ToLongFunction<Timeout> value) {
+        long millis = Objects.isNull(methodTimeout) ? UNSET : value.applyAsLong(methodTimeout);
+        if (millis == UNSET && !Objects.isNull(typeTimeout)) {
+            millis = value.applyAsLong(typeTimeout);
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.zw201913.simplehttp.core.spring;
+
+import com.github.zw201913.simplehttp.core.resilience.Deadline;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 为每个收到的请求设置截止时间，处理请求时通过代理方法发出的请求不会超过剩余的时间
+ *
+ * <p>截止时间取请求头Deadline.HEADER（上游剩余的毫秒数）和timeout中较早的一个，都没有时不设置
+ *
+ * <pre>
+ * &#64;Bean
+ * public FilterRegistrationBean&lt;DeadlineFilter&gt; deadlineFilter() {
+ *     // 每个请求最多处理2秒
+ *     return new FilterRegistrationBean&lt;&gt;(new DeadlineFilter(2000));
+ * }
+ * </pre>
+ *
+ * @author zouwei
+ */
+@Slf4j
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    /** 每个请求最多处理的毫秒数，0表示只使用请求头 */
+    private final long timeout;
+
+    public DeadlineFilter() {
+        this(0);
+    }
+
+    public DeadlineFilter(long timeout) {
+        if (timeout < 0) {
+            String logstr = "DeadlineFilter的timeout不能小于0";
+            log.error(logstr);
+            throw new IllegalArgumentException(logstr);
+        }
+        this.timeout = timeout;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Deadline deadline = timeout > 0 ? Deadline.after(timeout) : null;
+        String header = request.getHeader(Deadline.HEADER);
+        if (!StringUtils.isBlank(header)) {
+            try {
+                Deadline inbound = Deadline.after(Math.max(Long.parseLong(header.trim()), 0));
+                deadline = inbound.min(deadline);
+            } catch (NumberFormatException e) {
+                log.warn("请求头" + Deadline.HEADER + "不是毫秒数：" + header);
+            }
+        }
+        Deadline previous = Deadline.current();
+        Deadline.set(deadline);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Deadline.set(previous);
+        }
+    }
+}
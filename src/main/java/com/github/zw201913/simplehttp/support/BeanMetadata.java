@@ -0,0 +1,155 @@
+package com.github.zw201913.simplehttp.support;
+
+import com.github.zw201913.simplehttp.annotation.Field;
+import com.github.zw201913.simplehttp.annotation.Header;
+import com.github.zw201913.simplehttp.annotation.Url;
+import com.google.common.collect.Lists;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 缓存实体类的字段信息，每个类只解析一次注解，取值使用MethodHandle
+ *
+ * @author zouwei
+ */
+@Slf4j
+public final class BeanMetadata {
+
+    private static final ClassValue<BeanMetadata> CACHE =
+            new ClassValue<BeanMetadata>() {
+                @Override
+                protected BeanMetadata computeValue(Class<?> type) {
+                    return new BeanMetadata(type);
+                }
+            };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    @Getter private final Property[] properties;
+
+    private BeanMetadata(Class<?> clazz) {
+        List<Property> list = Lists.newArrayList();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (java.lang.reflect.Field field : clazz.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                continue;
+            }
+            Target target = resolveTarget(field);
+            if (Objects.isNull(target)) {
+                continue;
+            }
+            field.setAccessible(true);
+            try {
+                MethodHandle getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                list.add(new Property(field.getName(), resolveKey(field), target, getter));
+            } catch (IllegalAccessException e) {
+                log.error(clazz.getName() + "." + field.getName() + "字段无法访问", e);
+            }
+        }
+        this.properties = list.toArray(new Property[0]);
+    }
+
+    /**
+     * 获取类的字段信息
+     *
+     * @param clazz
+     * @return
+     */
+    public static BeanMetadata of(Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+
+    /**
+     * 解析字段对应的请求部分
+     *
+     * @param field
+     * @return
+     */
+    private static Target resolveTarget(java.lang.reflect.Field field) {
+        if (field.isAnnotationPresent(Field.class)) {
+            return Target.FIELD;
+        }
+        if (field.isAnnotationPresent(Header.class)) {
+            return Target.HEADER;
+        }
+        if (field.isAnnotationPresent(Url.class)) {
+            if (ClassUtils.isString(field.getType())) {
+                return Target.URL;
+            }
+            log.warn(field.getName() + "字段被@Url注解必须要是String类型");
+            return null;
+        }
+        return Target.NONE;
+    }
+
+    /**
+     * 解析字段对应的key值，没有指定就用字段名
+     *
+     * @param field
+     * @return
+     */
+    private static String resolveKey(java.lang.reflect.Field field) {
+        String key = null;
+        Field f = field.getDeclaredAnnotation(Field.class);
+        if (!Objects.isNull(f)) {
+            key = f.value();
+        } else {
+            Header h = field.getDeclaredAnnotation(Header.class);
+            if (!Objects.isNull(h)) {
+                key = h.value();
+            }
+        }
+        return StringUtils.isBlank(key) ? field.getName() : key;
+    }
+
+    /** 字段对应请求的哪一部分 */
+    public enum Target {
+        HEADER,
+        FIELD,
+        URL,
+        /** 没有注解，由参数上的注解决定 */
+        NONE
+    }
+
+    /** 字段信息 */
+    @Getter
+    public static final class Property {
+        /** 字段名 */
+        private final String name;
+        /** 请求中使用的key */
+        private final String key;
+
+        private final Target target;
+
+        private final MethodHandle getter;
+
+        Property(String name, String key, Target target, MethodHandle getter) {
+            this.name = name;
+            this.key = key;
+            this.target = target;
+            this.getter = getter;
+        }
+
+        /**
+         * 读取字段值
+         *
+         * @param bean
+         * @return
+         */
+        public Object get(Object bean) {
+            try {
+                return (Object) getter.invokeExact(bean);
+            } catch (Throwable e) {
+                throw new IllegalStateException(name + "字段读取失败", e);
+            }
+        }
+    }
+}
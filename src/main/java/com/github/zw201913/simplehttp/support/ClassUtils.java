@@ -4,7 +4,6 @@ import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
-import java.lang.reflect.Field;
 import java.util.Map;
 import java.util.Objects;
 
@@ -48,19 +47,11 @@ public final class ClassUtils {
      *
      * @param obj
      * @return
-     * @throws IllegalAccessException
      */
     public static Map<String, Object> obj2Map(Object obj) {
         Map<String, Object> map = Maps.newHashMap();
-        Class<?> clazz = obj.getClass();
-        Field[] fields = clazz.getDeclaredFields();
-        try {
-            for (Field field : fields) {
-                field.setAccessible(true);
-                map.put(field.getName(), field.get(obj));
-            }
-        } catch (IllegalAccessException e) {
-            log.error("转换失败", e);
+        for (BeanMetadata.Property property : BeanMetadata.of(obj.getClass()).getProperties()) {
+            map.put(property.getName(), property.get(obj));
         }
         return map;
     }
@@ -2,6 +2,7 @@ package com.github.zw201913.simplehttp.support;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.map.DeserializationConfig;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.SerializationConfig;
@@ -9,6 +10,9 @@ import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.codehaus.jackson.type.JavaType;
 import org.codehaus.jackson.type.TypeReference;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
 import java.util.Objects;
 
 /** @author zouwei */
@@ -146,4 +150,57 @@ public final class JsonUtils {
             return null;
         }
     }
+
+    /**
+     * 解析类型，可以提前解析好重复使用
+     *
+     * @param type 例如：方法的泛型返回类型List<User>
+     * @return
+     */
+    public static JavaType javaType(Type type) {
+        return objectMapper.getTypeFactory().constructType(type);
+    }
+
+    /**
+     * 直接从输入流解析对象，不需要先读成字符串
+     *
+     * <p>读取时的网络错误和不完整的JSON都会抛出异常，不能像解析字符串一样返回null
+     *
+     * @param inputStream
+     * @param javaType
+     * @param <T>
+     * @return
+     * @throws IOException
+     */
+    public static <T> T stream2Obj(InputStream inputStream, JavaType javaType)
+            throws IOException {
+        if (Objects.isNull(inputStream) || Objects.isNull(javaType)) {
+            return null;
+        }
+        return objectMapper.readValue(inputStream, javaType);
+    }
+
+    /**
+     * 创建流式解析器，用于逐个读取数组元素或者多个连续的JSON值
+     *
+     * @param inputStream
+     * @return
+     * @throws IOException
+     */
+    public static JsonParser createParser(InputStream inputStream) throws IOException {
+        return objectMapper.getJsonFactory().createJsonParser(inputStream);
+    }
+
+    /**
+     * 从解析器当前位置读取一个对象，解析失败时直接抛出异常
+     *
+     * @param parser
+     * @param javaType
+     * @param <T>
+     * @return
+     * @throws IOException
+     */
+    public static <T> T readValue(JsonParser parser, JavaType javaType) throws IOException {
+        return objectMapper.readValue(parser, javaType);
+    }
 }
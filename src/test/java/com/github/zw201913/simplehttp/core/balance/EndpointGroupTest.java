@@ -0,0 +1,77 @@
+package com.github.zw201913.simplehttp.core.balance;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * EndpointGroup按照power of two choices选择地址
+ *
+ * @author zouwei
+ */
+public class EndpointGroupTest {
+
+    private static final String[] BASES = {
+        "http://127.0.0.1:8081", "http://127.0.0.1:8082", "http://127.0.0.1:8083"
+    };
+
+    @Test
+    public void prefersFewerInFlight() {
+        EndpointGroup group = new EndpointRegistry(null).group(BASES);
+        Endpoint busy = group.getEndpoints().get(0);
+        for (int i = 0; i < 10; i++) {
+            busy.start();
+        }
+        // 任意两个地址中负载最高的一个都不会被选中
+        for (int i = 0; i < 200; i++) {
+            assertNotSame(busy, group.choose());
+        }
+    }
+
+    @Test
+    public void prefersLowerLatency() {
+        EndpointGroup group = new EndpointRegistry(null).group(BASES);
+        Endpoint slow = group.getEndpoints().get(1);
+        for (Endpoint endpoint : group.getEndpoints()) {
+            endpoint.start();
+            long millis = endpoint == slow ? 500 : 5;
+            endpoint.finish(TimeUnit.MILLISECONDS.toNanos(millis), false);
+        }
+        assertEquals(500, slow.latency(), 1);
+        for (int i = 0; i < 200; i++) {
+            assertNotSame(slow, group.choose());
+        }
+    }
+
+    @Test
+    public void spreadsEvenLoad() {
+        EndpointGroup group = new EndpointRegistry(null).group(BASES);
+        int[] counts = new int[BASES.length];
+        for (int i = 0; i < 300; i++) {
+            counts[group.getEndpoints().indexOf(group.choose())]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 0);
+        }
+    }
+
+    @Test
+    public void sameBaseSharesEndpoint() {
+        EndpointRegistry registry = new EndpointRegistry(null);
+        EndpointGroup first = registry.group(new String[] {"http://127.0.0.1:8081/"});
+        EndpointGroup second = registry.group(BASES);
+        assertSame(first.getEndpoints().get(0), second.getEndpoints().get(0));
+        assertEquals("http://127.0.0.1:8081", first.template());
+        assertEquals(BASES.length, registry.endpoints().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidBase() {
+        new EndpointRegistry(null).group(new String[] {"not a url"});
+    }
+}
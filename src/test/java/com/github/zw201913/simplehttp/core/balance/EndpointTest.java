@@ -0,0 +1,134 @@
+package com.github.zw201913.simplehttp.core.balance;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Endpoint的异常实例剔除和恢复
+ *
+ * @author zouwei
+ */
+public class EndpointTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void ejectsAfterConsecutiveFailures() {
+        Endpoint endpoint = endpoint();
+        fail(endpoint);
+        assertTrue(endpoint.isAvailable());
+        fail(endpoint);
+        assertFalse(endpoint.isAvailable());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        Endpoint endpoint = endpoint();
+        fail(endpoint);
+        endpoint.start();
+        endpoint.finish(FAST, false);
+        fail(endpoint);
+        assertTrue(endpoint.isAvailable());
+    }
+
+    @Test
+    public void ejectionExpiresAndGrows() throws InterruptedException {
+        Endpoint endpoint = endpoint();
+        fail(endpoint);
+        fail(endpoint);
+        TimeUnit.MILLISECONDS.sleep(150);
+        assertTrue(endpoint.isAvailable());
+        // 短时间内再次被剔除，剔除时长翻倍
+        fail(endpoint);
+        fail(endpoint);
+        TimeUnit.MILLISECONDS.sleep(150);
+        assertFalse(endpoint.isAvailable());
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertTrue(endpoint.isAvailable());
+    }
+
+    @Test
+    public void probeSuccessReinstates() {
+        Endpoint endpoint = endpoint();
+        fail(endpoint);
+        fail(endpoint);
+        assertFalse(endpoint.isAvailable());
+        endpoint.onProbe(true);
+        assertTrue(endpoint.isAvailable());
+    }
+
+    @Test
+    public void probeFailureCountsAsFailure() {
+        Endpoint endpoint = endpoint();
+        fail(endpoint);
+        endpoint.onProbe(false);
+        assertFalse(endpoint.isAvailable());
+    }
+
+    @Test
+    public void withoutPolicyNeverEjects() {
+        Endpoint endpoint = new EndpointRegistry(null).group(new String[] {"http://a"}).choose();
+        for (int i = 0; i < 10; i++) {
+            fail(endpoint);
+        }
+        endpoint.onProbe(false);
+        assertTrue(endpoint.isAvailable());
+    }
+
+    @Test
+    public void groupSkipsEjectedEndpoint() {
+        EndpointGroup group = group();
+        Endpoint ejected = group.getEndpoints().get(0);
+        fail(ejected);
+        fail(ejected);
+        for (int i = 0; i < 100; i++) {
+            assertNotSame(ejected, group.choose());
+        }
+    }
+
+    @Test
+    public void shardMovesOffEjectedEndpoint() {
+        EndpointGroup group = group();
+        Shard shard = new Shard("user-1");
+        Endpoint owner = group.choose(shard);
+        fail(owner);
+        fail(owner);
+        Endpoint next = group.choose(shard);
+        assertNotSame(owner, next);
+        assertSame(next, group.choose(shard));
+        owner.onProbe(true);
+        assertSame(owner, group.choose(shard));
+    }
+
+    @Test
+    public void allEjectedStillChooses() {
+        EndpointGroup group = group();
+        for (Endpoint endpoint : group.getEndpoints()) {
+            fail(endpoint);
+            fail(endpoint);
+        }
+        assertTrue(group.getEndpoints().contains(group.choose()));
+        assertTrue(group.getEndpoints().contains(group.choose(new Shard("user-1"))));
+    }
+
+    /** 连续失败2次剔除，第一次剔除100毫秒 */
+    private EndpointGroup group() {
+        return new EndpointRegistry(new OutlierPolicy(2, 100, 1000))
+                .group(new String[] {"http://a", "http://b", "http://c"});
+    }
+
+    private Endpoint endpoint() {
+        return group().getEndpoints().get(0);
+    }
+
+    private void fail(Endpoint endpoint) {
+        endpoint.start();
+        endpoint.finish(FAST, true);
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.zw201913.simplehttp.core.batch;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * BatchCalls的汇总逻辑
+ *
+ * @author zouwei
+ */
+public class BatchCallsTest {
+
+    @Test
+    public void allOfKeepsInputOrder() throws Exception {
+        List<CompletableFuture<String>> futures = futures(3);
+        CompletableFuture<List<String>> result = BatchCalls.allOf(futures);
+        futures.get(2).complete("c");
+        futures.get(0).complete("a");
+        assertFalse(result.isDone());
+        futures.get(1).complete("b");
+        assertEquals(Lists.newArrayList("a", "b", "c"), result.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void quorumAcceptsNullValues() throws Exception {
+        List<CompletableFuture<String>> futures = futures(3);
+        CompletableFuture<List<String>> result = BatchCalls.quorum(2, futures);
+        futures.get(1).complete(null);
+        futures.get(0).complete("a");
+        List<String> values = result.get(1, TimeUnit.SECONDS);
+        assertEquals(2, values.size());
+        assertEquals("a", values.get(0));
+        assertNull(values.get(1));
+        assertTrue(futures.get(2).isCancelled());
+    }
+
+    @Test
+    public void quorumFailsOnceUnreachable() throws Exception {
+        List<CompletableFuture<String>> futures = futures(4);
+        CompletableFuture<List<String>> result = BatchCalls.quorum(3, futures);
+        futures.get(0).completeExceptionally(new IOException("first"));
+        assertFalse(result.isDone());
+        futures.get(3).completeExceptionally(new IOException("second"));
+        try {
+            result.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("first", e.getCause().getCause().getMessage());
+            assertEquals(1, e.getCause().getSuppressed().length);
+        }
+        assertTrue(futures.get(1).isCancelled());
+        assertTrue(futures.get(2).isCancelled());
+    }
+
+    @Test
+    public void firstSuccessfulSkipsFailures() throws Exception {
+        List<CompletableFuture<String>> futures = futures(3);
+        CompletableFuture<String> result = BatchCalls.firstSuccessful(futures);
+        futures.get(0).completeExceptionally(new IOException("down"));
+        futures.get(2).complete("c");
+        assertEquals("c", result.get(1, TimeUnit.SECONDS));
+        assertTrue(futures.get(1).isCancelled());
+    }
+
+    @Test
+    public void firstSuccessfulFailsWithSingleError() throws Exception {
+        List<CompletableFuture<String>> futures = futures(1);
+        CompletableFuture<String> result = BatchCalls.firstSuccessful(futures);
+        IOException error = new IOException("down");
+        futures.get(0).completeExceptionally(error);
+        try {
+            result.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void timeoutCancelsPendingCalls() throws Exception {
+        List<CompletableFuture<String>> futures = futures(2);
+        CompletableFuture<List<String>> result =
+                BatchCalls.allOf(futures, 50, TimeUnit.MILLISECONDS);
+        futures.get(0).complete("a");
+        try {
+            result.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertTrue(futures.get(1).isCancelled());
+    }
+
+    @Test
+    public void quorumUnderConcurrentCompletions() throws Exception {
+        int total = 8;
+        int required = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(total);
+        try {
+            for (int round = 0; round < 500; round++) {
+                List<CompletableFuture<Integer>> futures = futures(total);
+                CompletableFuture<List<Integer>> result = BatchCalls.quorum(required, futures);
+                CountDownLatch start = new CountDownLatch(1);
+                for (int i = 0; i < total; i++) {
+                    final int index = i;
+                    executor.execute(
+                            () -> {
+                                try {
+                                    start.await();
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                futures.get(index).complete(index);
+                            });
+                }
+                start.countDown();
+                List<Integer> values = result.get(5, TimeUnit.SECONDS);
+                assertEquals(required, values.size());
+                for (int i = 0; i < values.size(); i++) {
+                    // 每个结果都已经写入，并且按照传入顺序排列
+                    Integer value = values.get(i);
+                    assertNotNull(value);
+                    if (i > 0) {
+                        assertTrue(values.get(i - 1) < value);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> List<CompletableFuture<T>> futures(int size) {
+        List<CompletableFuture<T>> futures = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        return futures;
+    }
+}
@@ -0,0 +1,217 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.annotation.Cached;
+import com.github.zw201913.simplehttp.annotation.Get;
+import com.github.zw201913.simplehttp.annotation.Header;
+import com.github.zw201913.simplehttp.annotation.Url;
+import com.github.zw201913.simplehttp.core.cache.ResponseCache;
+import com.github.zw201913.simplehttp.core.factory.DefaultOkHttpClientFactory;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @Cached缓存解析好的返回值
+ *
+ * @author zouwei
+ */
+public class CachedTest {
+
+    public static class CachedOkHttpClientFactory extends DefaultOkHttpClientFactory {}
+
+    interface CachedService {
+
+        @Cached
+        @Get(clientFactory = CachedOkHttpClientFactory.class)
+        String get(@Url String url);
+
+        @Cached
+        @Get(clientFactory = CachedOkHttpClientFactory.class)
+        CompletableFuture<String> getAsync(@Url String url);
+
+        @Cached(ttl = 200, timeUnit = TimeUnit.MILLISECONDS)
+        @Get(clientFactory = CachedOkHttpClientFactory.class)
+        String shortLived(@Url String url);
+
+        @Cached(headers = "Authorization")
+        @Get(clientFactory = CachedOkHttpClientFactory.class)
+        String authorized(@Url String url, @Header("Authorization") String authorization);
+
+        @Cached(ttl = 2000, refreshAfter = 100, timeUnit = TimeUnit.MILLISECONDS)
+        @Get(clientFactory = CachedOkHttpClientFactory.class)
+        String refreshAhead(@Url String url);
+
+        @Cached(ttl = 100, staleWhileRevalidate = 2000, timeUnit = TimeUnit.MILLISECONDS)
+        @Get(clientFactory = CachedOkHttpClientFactory.class)
+        String stale(@Url String url);
+
+        @Cached(ttl = 100, staleWhileRevalidate = 100, timeUnit = TimeUnit.MILLISECONDS)
+        @Get(clientFactory = CachedOkHttpClientFactory.class)
+        String shortStale(@Url String url);
+    }
+
+    private MockWebServer server;
+
+    private CachedService service;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        service = new HttpProxyFactory<>(CachedService.class).newInstance();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void hitDoesNotSendRequest() {
+        server.enqueue(new MockResponse().setBody("v1"));
+        server.enqueue(new MockResponse().setBody("v2"));
+        assertEquals("v1", service.get(url("/hit")));
+        assertEquals("v1", service.get(url("/hit")));
+        assertEquals(1, server.getRequestCount());
+        ResponseCache cache = cache("get");
+        assertTrue(cache.stats().hitCount() >= 1);
+    }
+
+    @Test
+    public void differentUrlMisses() {
+        server.enqueue(new MockResponse().setBody("a"));
+        server.enqueue(new MockResponse().setBody("b"));
+        assertEquals("a", service.get(url("/a")));
+        assertEquals("b", service.get(url("/b")));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void futureHitCompletesImmediately() throws Exception {
+        server.enqueue(new MockResponse().setBody("v1"));
+        assertEquals("v1", service.getAsync(url("/future")).get(5, TimeUnit.SECONDS));
+        CompletableFuture<String> cached = service.getAsync(url("/future"));
+        assertTrue(cached.isDone());
+        assertEquals("v1", cached.get());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void expiresAfterTtl() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("v1"));
+        server.enqueue(new MockResponse().setBody("v2"));
+        assertEquals("v1", service.shortLived(url("/ttl")));
+        assertEquals("v1", service.shortLived(url("/ttl")));
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertEquals("v2", service.shortLived(url("/ttl")));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void configuredHeadersArePartOfKey() {
+        server.enqueue(new MockResponse().setBody("alice"));
+        server.enqueue(new MockResponse().setBody("bob"));
+        assertEquals("alice", service.authorized(url("/me"), "alice"));
+        assertEquals("bob", service.authorized(url("/me"), "bob"));
+        assertEquals("alice", service.authorized(url("/me"), "alice"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void failureIsNotCached() {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("ok"));
+        try {
+            service.get(url("/failure"));
+            fail();
+        } catch (RuntimeException e) {
+            // 500响应解析失败
+        }
+        assertEquals("ok", service.get(url("/failure")));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void refreshAheadReturnsOldValueAndRefreshes() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("v1"));
+        server.enqueue(new MockResponse().setBody("v2"));
+        assertEquals("v1", service.refreshAhead(url("/ahead")));
+        TimeUnit.MILLISECONDS.sleep(150);
+        // 快过期时直接返回旧值，在后台刷新
+        assertEquals("v1", service.refreshAhead(url("/ahead")));
+        awaitRequests(2);
+        assertEquals("v2", awaitValue(() -> service.refreshAhead(url("/ahead")), "v2"));
+        assertEquals(2, server.getRequestCount());
+        assertTrue(cache("refreshAhead").refreshCount() >= 1);
+    }
+
+    @Test
+    public void staleValueServedWhileRevalidating() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("v1"));
+        server.enqueue(
+                new MockResponse().setBody("v2").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        assertEquals("v1", service.stale(url("/stale")));
+        TimeUnit.MILLISECONDS.sleep(150);
+        long start = System.nanoTime();
+        assertEquals("v1", service.stale(url("/stale")));
+        // 刷新请求还没有返回，同一个key不会重复刷新
+        assertEquals("v1", service.stale(url("/stale")));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 150);
+        assertEquals("v2", awaitValue(() -> service.stale(url("/stale")), "v2"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void beyondStaleWindowFetchesSynchronously() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("v1"));
+        server.enqueue(new MockResponse().setBody("v2"));
+        assertEquals("v1", service.shortStale(url("/expired")));
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertEquals("v2", service.shortStale(url("/expired")));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getRequestCount() < count && System.nanoTime() - deadline < 0) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(count, server.getRequestCount());
+    }
+
+    private String awaitValue(Supplier<String> call, String expected)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String value = call.get();
+        while (!expected.equals(value) && System.nanoTime() - deadline < 0) {
+            TimeUnit.MILLISECONDS.sleep(10);
+            value = call.get();
+        }
+        return value;
+    }
+
+    private String url(String path) {
+        return server.url(path).toString();
+    }
+
+    private ResponseCache cache(String method) {
+        String prefix = CachedService.class.getName() + "." + method + "(";
+        for (ResponseCache cache : ResponseCache.caches().values()) {
+            if (cache.getName().startsWith(prefix)) {
+                return cache;
+            }
+        }
+        throw new AssertionError(prefix);
+    }
+}
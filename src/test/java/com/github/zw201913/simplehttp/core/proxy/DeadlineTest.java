@@ -0,0 +1,136 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.annotation.Get;
+import com.github.zw201913.simplehttp.annotation.Url;
+import com.github.zw201913.simplehttp.core.factory.DefaultOkHttpClientFactory;
+import com.github.zw201913.simplehttp.core.resilience.Deadline;
+import com.github.zw201913.simplehttp.core.resilience.DeadlineExceededException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 当前线程的截止时间随请求传递
+ *
+ * @author zouwei
+ */
+public class DeadlineTest {
+
+    public static class DeadlineOkHttpClientFactory extends DefaultOkHttpClientFactory {}
+
+    interface DeadlineService {
+
+        @Get(clientFactory = DeadlineOkHttpClientFactory.class)
+        String get(@Url String url);
+
+        @Get(clientFactory = DeadlineOkHttpClientFactory.class)
+        CompletableFuture<String> getAsync(@Url String url);
+    }
+
+    private MockWebServer server;
+
+    private DeadlineService service;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        service = new HttpProxyFactory<>(DeadlineService.class).newInstance();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Deadline.set(null);
+        server.shutdown();
+    }
+
+    @Test
+    public void remainingTimeIsSentDownstream() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("ok"));
+        Deadline.set(Deadline.after(2000));
+        assertEquals("ok", service.get(url()));
+        RecordedRequest request = server.takeRequest();
+        long remaining = Long.parseLong(request.getHeader(Deadline.HEADER));
+        assertTrue(remaining > 0 && remaining <= 2000);
+    }
+
+    @Test
+    public void withoutDeadlineNoHeader() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("ok"));
+        assertEquals("ok", service.get(url()));
+        assertNull(server.takeRequest().getHeader(Deadline.HEADER));
+    }
+
+    @Test
+    public void expiredDeadlineIsNotSent() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("ok"));
+        Deadline.set(Deadline.after(0));
+        try {
+            service.get(url());
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(TimeoutTest.hasCause(e, DeadlineExceededException.class));
+        }
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    public void deadlineLimitsCallTimeout() {
+        server.enqueue(
+                new MockResponse().setBody("slow").setHeadersDelay(1000, TimeUnit.MILLISECONDS));
+        Deadline.set(Deadline.after(200));
+        long start = System.nanoTime();
+        try {
+            service.get(url());
+            fail();
+        } catch (RuntimeException e) {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("耗时" + elapsed + "毫秒", elapsed < 800);
+            assertTrue(TimeoutTest.hasCause(e, InterruptedIOException.class));
+        }
+    }
+
+    @Test
+    public void asyncCallCapturesCallerDeadline() throws Exception {
+        server.enqueue(
+                new MockResponse().setBody("slow").setHeadersDelay(1000, TimeUnit.MILLISECONDS));
+        Deadline.set(Deadline.after(200));
+        CompletableFuture<String> future = service.getAsync(url());
+        // 发出请求之后清除截止时间，异步请求仍然受到限制
+        Deadline.set(null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(TimeoutTest.hasCause(e, InterruptedIOException.class));
+        }
+    }
+
+    @Test
+    public void minPicksEarlierDeadline() {
+        Deadline early = Deadline.after(100);
+        Deadline late = Deadline.after(1000);
+        assertSame(early, early.min(late));
+        assertSame(early, late.min(early));
+        assertSame(late, late.min(null));
+    }
+
+    private String url() {
+        return server.url("/deadline").toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.annotation.Endpoints;
+import com.github.zw201913.simplehttp.annotation.Field;
+import com.github.zw201913.simplehttp.annotation.Get;
+import com.github.zw201913.simplehttp.annotation.ShardKey;
+import com.github.zw201913.simplehttp.core.factory.DefaultOkHttpClientFactory;
+import com.google.common.collect.Sets;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @ShardKey参数的绑定和路由
+ *
+ * @author zouwei
+ */
+public class ShardKeyTest {
+
+    /** @Endpoints只能使用常量，测试服务固定使用这个端口 */
+    private static final int PORT = 45231;
+
+    private static final String BASE = "http://127.0.0.1:" + PORT;
+
+    public static class ShardOkHttpClientFactory extends DefaultOkHttpClientFactory {}
+
+    @Endpoints({BASE + "/a", BASE + "/b", BASE + "/c"})
+    interface ProfileService {
+
+        @Get(value = "/profile", clientFactory = ShardOkHttpClientFactory.class)
+        String profile(@ShardKey String id);
+
+        @Get(value = "/profile", clientFactory = ShardOkHttpClientFactory.class)
+        String profileByField(@ShardKey @Field("userId") Long userId);
+    }
+
+    private MockWebServer server;
+
+    private ProfileService service;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(
+                new Dispatcher() {
+                    @Override
+                    public MockResponse dispatch(RecordedRequest request) {
+                        return new MockResponse().setBody(request.getPath());
+                    }
+                });
+        server.start(InetAddress.getByName("127.0.0.1"), PORT);
+        service = new HttpProxyFactory<>(ProfileService.class).newInstance();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void bareShardKeyIsSentAsParameter() {
+        String path = service.profile("42");
+        assertTrue(path, path.endsWith("/profile?id=42"));
+    }
+
+    @Test
+    public void sameKeyAlwaysHitsSameEndpoint() {
+        String first = service.profile("user-1");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(first, service.profile("user-1"));
+        }
+    }
+
+    @Test
+    public void keysSpreadOverEndpoints() {
+        Set<String> endpoints = Sets.newHashSet();
+        for (int i = 0; i < 50; i++) {
+            String path = service.profile("user-" + i);
+            endpoints.add(path.substring(0, path.indexOf("/profile")));
+        }
+        assertEquals(Sets.newHashSet("/a", "/b", "/c"), endpoints);
+    }
+
+    @Test
+    public void annotatedShardKeyUsesFieldKey() {
+        String path = service.profileByField(7L);
+        assertTrue(path, path.endsWith("/profile?userId=7"));
+    }
+
+    @Test
+    public void nullShardKeyFallsBackToLoadBalancing() {
+        String path = service.profile(null);
+        assertTrue(path, path.endsWith("/profile"));
+    }
+}
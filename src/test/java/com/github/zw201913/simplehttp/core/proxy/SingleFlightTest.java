@@ -0,0 +1,155 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.annotation.CircuitBreaker;
+import com.github.zw201913.simplehttp.annotation.Endpoints;
+import com.github.zw201913.simplehttp.annotation.Get;
+import com.github.zw201913.simplehttp.annotation.SingleFlight;
+import com.github.zw201913.simplehttp.annotation.Url;
+import com.github.zw201913.simplehttp.core.factory.DefaultOkHttpClientFactory;
+import com.google.common.collect.Lists;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @SingleFlight合并请求
+ *
+ * @author zouwei
+ */
+public class SingleFlightTest {
+
+    /** @Endpoints只能使用常量，测试服务固定使用这个端口 */
+    private static final int PORT = 45232;
+
+    public static class SingleFlightOkHttpClientFactory extends DefaultOkHttpClientFactory {}
+
+    interface CoalescedService {
+
+        @SingleFlight
+        @Get(clientFactory = SingleFlightOkHttpClientFactory.class)
+        String get(@Url String url);
+
+        @SingleFlight
+        @Get(clientFactory = SingleFlightOkHttpClientFactory.class)
+        CompletableFuture<String> getAsync(@Url String url);
+    }
+
+    @Endpoints("http://127.0.0.1:" + PORT)
+    interface GuardedService {
+
+        @SingleFlight
+        @CircuitBreaker(
+                minimumCalls = 2,
+                windowSize = 2,
+                halfOpenCalls = 1,
+                fallback = GuardedFallback.class)
+        @Get(value = "/guarded", clientFactory = SingleFlightOkHttpClientFactory.class)
+        String guarded();
+    }
+
+    public static class GuardedFallback implements GuardedService {
+
+        @Override
+        public String guarded() {
+            return "fallback";
+        }
+    }
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), PORT);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void concurrentCallsShareOneRequest() throws Exception {
+        server.enqueue(
+                new MockResponse().setBody("shared").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        CoalescedService service = new HttpProxyFactory<>(CoalescedService.class).newInstance();
+        String url = server.url("/coalesced").toString();
+        int callers = 5;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = Lists.newArrayList();
+            for (int i = 0; i < callers; i++) {
+                results.add(
+                        executor.submit(
+                                () -> {
+                                    start.await();
+                                    return service.get(url);
+                                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("shared", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void asyncCallsShareOneRequest() throws Exception {
+        server.enqueue(
+                new MockResponse().setBody("shared").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        CoalescedService service = new HttpProxyFactory<>(CoalescedService.class).newInstance();
+        String url = server.url("/coalesced-async").toString();
+        CompletableFuture<String> first = service.getAsync(url);
+        CompletableFuture<String> second = service.getAsync(url);
+        assertEquals("shared", first.get(5, TimeUnit.SECONDS));
+        assertEquals("shared", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void finishedCallIsNotShared() throws Exception {
+        server.enqueue(new MockResponse().setBody("first"));
+        server.enqueue(new MockResponse().setBody("second"));
+        CoalescedService service = new HttpProxyFactory<>(CoalescedService.class).newInstance();
+        String url = server.url("/sequential").toString();
+        assertEquals("first", service.get(url));
+        assertEquals("second", service.get(url));
+    }
+
+    @Test
+    public void circuitOpenedInInterceptorUsesFallback() {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        GuardedService service = new HttpProxyFactory<>(GuardedService.class).newInstance();
+        for (int i = 0; i < 2; i++) {
+            try {
+                service.guarded();
+                fail();
+            } catch (RuntimeException e) {
+                // 500响应解析失败
+            }
+        }
+        // 按照主机熔断时由拦截器发现熔断器已经打开
+        assertEquals("fallback", service.guarded());
+        assertEquals(2, server.getRequestCount());
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.zw201913.simplehttp.core.proxy;
+
+import com.github.zw201913.simplehttp.annotation.Get;
+import com.github.zw201913.simplehttp.annotation.Timeout;
+import com.github.zw201913.simplehttp.annotation.Url;
+import com.github.zw201913.simplehttp.core.factory.DefaultOkHttpClientFactory;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @Timeout覆盖OkHttpClient的超时时间
+ *
+ * @author zouwei
+ */
+public class TimeoutTest {
+
+    public static class TimeoutOkHttpClientFactory extends DefaultOkHttpClientFactory {}
+
+    @Timeout(call = 200)
+    interface TimedService {
+
+        @Get(clientFactory = TimeoutOkHttpClientFactory.class)
+        String inherited(@Url String url);
+
+        @Timeout(call = 0)
+        @Get(clientFactory = TimeoutOkHttpClientFactory.class)
+        String unlimited(@Url String url);
+
+        @Timeout(read = 200, call = 0)
+        @Get(clientFactory = TimeoutOkHttpClientFactory.class)
+        String read(@Url String url);
+    }
+
+    interface PlainService {
+
+        @Get(clientFactory = TimeoutOkHttpClientFactory.class)
+        String get(@Url String url);
+    }
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void typeCallTimeoutCancelsSlowCall() {
+        server.enqueue(slow(1000));
+        TimedService service = new HttpProxyFactory<>(TimedService.class).newInstance();
+        assertTimesOut(() -> service.inherited(url()), 800);
+    }
+
+    @Test
+    public void methodOverridesTypeTimeout() {
+        server.enqueue(slow(400));
+        TimedService service = new HttpProxyFactory<>(TimedService.class).newInstance();
+        assertEquals("slow", service.unlimited(url()));
+    }
+
+    @Test
+    public void readTimeoutFailsSlowResponse() {
+        server.enqueue(slow(1000));
+        TimedService service = new HttpProxyFactory<>(TimedService.class).newInstance();
+        assertTimesOut(() -> service.read(url()), 800);
+    }
+
+    @Test
+    public void withoutTimeoutUsesClientSettings() {
+        server.enqueue(slow(400));
+        PlainService service = new HttpProxyFactory<>(PlainService.class).newInstance();
+        assertEquals("slow", service.get(url()));
+    }
+
+    private MockResponse slow(long millis) {
+        return new MockResponse().setBody("slow").setHeadersDelay(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private String url() {
+        return server.url("/timeout").toString();
+    }
+
+    private void assertTimesOut(Runnable call, long maxMillis) {
+        long start = System.nanoTime();
+        try {
+            call.run();
+            fail();
+        } catch (RuntimeException e) {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("耗时" + elapsed + "毫秒", elapsed < maxMillis);
+            assertTrue(hasCause(e, InterruptedIOException.class));
+        }
+    }
+
+    static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Circuit的状态转换
+ *
+ * @author zouwei
+ */
+public class CircuitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    @Test
+    public void staysClosedBelowMinimumCalls() {
+        Circuit circuit = circuit();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuit.tryAcquire());
+            circuit.onResult(true, FAST);
+        }
+        assertEquals(Circuit.State.CLOSED, circuit.state());
+        assertEquals(-1, circuit.failureRate(), 0);
+    }
+
+    @Test
+    public void opensOnFailureRate() {
+        Circuit circuit = circuit();
+        record(circuit, false, false, true, true);
+        assertEquals(Circuit.State.OPEN, circuit.state());
+        assertFalse(circuit.tryAcquire());
+        assertFalse(circuit.isCallPermitted());
+    }
+
+    @Test
+    public void opensOnSlowCallRate() {
+        Circuit circuit = circuit();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(circuit.tryAcquire());
+            circuit.onResult(false, SLOW);
+        }
+        assertEquals(Circuit.State.OPEN, circuit.state());
+    }
+
+    @Test
+    public void halfOpenSuccessCloses() throws InterruptedException {
+        Circuit circuit = circuit();
+        record(circuit, true, true, true, true);
+        TimeUnit.MILLISECONDS.sleep(80);
+        assertEquals(Circuit.State.HALF_OPEN, circuit.state());
+        // 半开状态只放行halfOpenCalls次试探
+        assertTrue(circuit.tryAcquire());
+        assertTrue(circuit.tryAcquire());
+        assertFalse(circuit.tryAcquire());
+        circuit.onResult(false, FAST);
+        assertEquals(Circuit.State.HALF_OPEN, circuit.state());
+        circuit.onResult(false, FAST);
+        assertEquals(Circuit.State.CLOSED, circuit.state());
+        assertTrue(circuit.tryAcquire());
+    }
+
+    @Test
+    public void halfOpenFailureReopens() throws InterruptedException {
+        Circuit circuit = circuit();
+        record(circuit, true, true, true, true);
+        TimeUnit.MILLISECONDS.sleep(80);
+        assertTrue(circuit.tryAcquire());
+        assertTrue(circuit.tryAcquire());
+        circuit.onResult(true, FAST);
+        circuit.onResult(false, FAST);
+        assertEquals(Circuit.State.OPEN, circuit.state());
+        assertFalse(circuit.tryAcquire());
+    }
+
+    @Test
+    public void releaseReturnsHalfOpenPermit() throws InterruptedException {
+        Circuit circuit = circuit();
+        record(circuit, true, true, true, true);
+        TimeUnit.MILLISECONDS.sleep(80);
+        assertTrue(circuit.tryAcquire());
+        assertTrue(circuit.tryAcquire());
+        assertFalse(circuit.isCallPermitted());
+        circuit.release();
+        assertTrue(circuit.isCallPermitted());
+        assertTrue(circuit.tryAcquire());
+    }
+
+    @Test
+    public void resultsFromBeforeOpeningAreIgnored() {
+        Circuit circuit = circuit();
+        assertTrue(circuit.tryAcquire());
+        record(circuit, true, true, true, true);
+        circuit.onResult(false, FAST);
+        assertEquals(Circuit.State.OPEN, circuit.state());
+    }
+
+    /** 失败率50%，窗口4次，打开50毫秒，半开试探2次 */
+    private Circuit circuit() {
+        return new Circuit("test", new CircuitBreakerPolicy(50, 100, 1000, 4, 4, 50, 2));
+    }
+
+    private void record(Circuit circuit, boolean... failures) {
+        for (boolean failure : failures) {
+            assertTrue(circuit.tryAcquire());
+            circuit.onResult(failure, FAST);
+        }
+    }
+}
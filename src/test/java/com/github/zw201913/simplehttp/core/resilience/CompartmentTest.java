@@ -0,0 +1,151 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.annotation.Bulkhead;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compartment的许可和等待队列
+ *
+ * @author zouwei
+ */
+public class CompartmentTest {
+
+    @Bulkhead(value = 1)
+    private static final class NoQueue {}
+
+    @Bulkhead(value = 1, maxQueue = 1, maxWait = 100)
+    private static final class ShortQueue {}
+
+    @Bulkhead(value = 2, maxQueue = 8, maxWait = 5000)
+    private static final class LongQueue {}
+
+    @Test
+    public void sameNameSharesCompartment() {
+        Compartment compartment = Compartment.create("shared", bulkhead(NoQueue.class));
+        assertSame(compartment, Compartment.create("shared", bulkhead(LongQueue.class)));
+        assertTrue(Compartment.compartments().containsKey("shared"));
+    }
+
+    @Test
+    public void rejectsWhenQueueIsFull() throws Exception {
+        Compartment compartment = Compartment.create("no-queue", bulkhead(NoQueue.class));
+        compartment.acquire();
+        try {
+            compartment.acquire();
+            fail();
+        } catch (BulkheadFullException e) {
+            assertEquals(0, compartment.queued());
+        }
+        assertFalse(compartment.submit(() -> fail(), () -> fail()));
+        compartment.release();
+        assertEquals(1, compartment.availablePermits());
+    }
+
+    @Test
+    public void syncWaitTimesOut() throws Exception {
+        Compartment compartment = Compartment.create("sync-timeout", bulkhead(ShortQueue.class));
+        compartment.acquire();
+        long start = System.nanoTime();
+        try {
+            compartment.acquire();
+            fail();
+        } catch (BulkheadFullException e) {
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertEquals(0, compartment.queued());
+        compartment.release();
+    }
+
+    @Test
+    public void queuedTaskExpiresWhilePermitsAreHeld() throws Exception {
+        Compartment compartment = Compartment.create("expire", bulkhead(ShortQueue.class));
+        compartment.acquire();
+        AtomicInteger ran = new AtomicInteger();
+        CountDownLatch expired = new CountDownLatch(1);
+        assertTrue(compartment.submit(ran::incrementAndGet, expired::countDown));
+        assertEquals(1, compartment.queued());
+        // 队列已满
+        assertFalse(compartment.submit(ran::incrementAndGet, () -> fail()));
+        // 许可一直没有归还，由计时器拒绝
+        assertTrue(expired.await(1, TimeUnit.SECONDS));
+        assertEquals(0, compartment.queued());
+        compartment.release();
+        assertEquals(0, ran.get());
+        assertEquals(1, compartment.availablePermits());
+    }
+
+    @Test
+    public void releaseHandsPermitToQueuedTask() throws Exception {
+        Compartment compartment = Compartment.create("handoff", bulkhead(ShortQueue.class));
+        compartment.acquire();
+        AtomicInteger ran = new AtomicInteger();
+        AtomicInteger expired = new AtomicInteger();
+        assertTrue(compartment.submit(ran::incrementAndGet, expired::incrementAndGet));
+        compartment.release();
+        assertEquals(1, ran.get());
+        assertEquals(0, compartment.queued());
+        // 许可交给了等待的请求
+        assertEquals(0, compartment.availablePermits());
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(0, expired.get());
+        compartment.release();
+    }
+
+    @Test
+    public void concurrentSubmitsRespectPermits() throws Exception {
+        Compartment compartment = Compartment.create("race", bulkhead(LongQueue.class));
+        int tasks = 200;
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(tasks);
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                submitters.execute(
+                        () -> {
+                            Runnable task =
+                                    () -> {
+                                        peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                                        workers.execute(
+                                                () -> {
+                                                    active.decrementAndGet();
+                                                    done.countDown();
+                                                    compartment.release();
+                                                });
+                                    };
+                            if (!compartment.submit(task, done::countDown)) {
+                                rejected.incrementAndGet();
+                                done.countDown();
+                            }
+                        });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            submitters.shutdownNow();
+            workers.shutdownNow();
+        }
+        assertTrue(peak.get() <= 2);
+        assertTrue(rejected.get() < tasks);
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertEquals(2, compartment.availablePermits());
+        assertEquals(0, compartment.queued());
+    }
+
+    private static Bulkhead bulkhead(Class<?> type) {
+        return type.getAnnotation(Bulkhead.class);
+    }
+}
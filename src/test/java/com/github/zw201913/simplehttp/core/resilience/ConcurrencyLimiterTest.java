@@ -0,0 +1,150 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ConcurrencyLimiter的梯度算法和等待逻辑
+ *
+ * @author zouwei
+ */
+public class ConcurrencyLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void rejectsBeyondLimitWithoutQueue() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("reject", policy(2, 0));
+        assertEquals(1, limiter.acquire());
+        assertEquals(2, limiter.acquire());
+        assertEquals(-1, limiter.acquire());
+        limiter.release();
+        assertEquals(2, limiter.acquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void overloadBacksOff() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("overload", policy(20, 0));
+        limiter.acquire();
+        limiter.onSample(MILLIS, 1, true);
+        assertEquals(18, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void stableLatencyGrowsLimit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("grow", policy(10, 0));
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire();
+            limiter.onSample(MILLIS, limiter.getLimit(), false);
+        }
+        assertTrue(limiter.getLimit() > 10);
+        assertTrue(limiter.getLimit() <= 100);
+    }
+
+    @Test
+    public void lowUtilisationKeepsLimit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("idle", policy(10, 0));
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire();
+            limiter.onSample(MILLIS, 1, false);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void risingLatencyShrinksLimit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("shrink", policy(50, 0));
+        for (int i = 0; i < 200; i++) {
+            limiter.acquire();
+            limiter.onSample(MILLIS, limiter.getLimit(), false);
+        }
+        int warmed = limiter.getLimit();
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire();
+            limiter.onSample(20 * MILLIS, limiter.getLimit(), false);
+        }
+        assertTrue(limiter.getLimit() < warmed);
+        assertTrue(limiter.getLimit() >= 1);
+    }
+
+    @Test
+    public void waiterWakesOnRelease() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("wait", policy(1, 5000));
+        limiter.acquire();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> waiting = executor.submit(limiter::acquire);
+            TimeUnit.MILLISECONDS.sleep(50);
+            long start = System.nanoTime();
+            limiter.release();
+            assertEquals(1, (int) waiting.get(1, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void waiterTimesOut() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("timeout", policy(1, 50));
+        limiter.acquire();
+        long start = System.nanoTime();
+        assertEquals(-1, limiter.acquire());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void inFlightNeverExceedsLimit() throws Exception {
+        int threads = 8;
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("race", policy(3, 1000));
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(
+                        () -> {
+                            try {
+                                start.await();
+                                for (int i = 0; i < 200; i++) {
+                                    if (limiter.acquire() < 0) {
+                                        rejected.incrementAndGet();
+                                        continue;
+                                    }
+                                    peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                                    active.decrementAndGet();
+                                    limiter.release();
+                                }
+                            } catch (Exception e) {
+                                rejected.incrementAndGet();
+                            }
+                        });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(peak.get() <= 3);
+        assertEquals(0, rejected.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private static ConcurrencyLimitPolicy policy(int initialLimit, long queueTimeout) {
+        return new ConcurrencyLimitPolicy(initialLimit, 1, 100, queueTimeout);
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.core.factory.BaseOkHttpClientFactory;
+import com.github.zw201913.simplehttp.core.http.AbstractHttp;
+import com.github.zw201913.simplehttp.support.HttpUtils;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * HedgedCall的对冲竞争
+ *
+ * @author zouwei
+ */
+public class HedgedCallTest {
+
+    private MockWebServer server;
+
+    private AbstractHttp http;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        http = http(64);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void hedgeWinsOverSlowPrimary() throws Exception {
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(2, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("fast"));
+        long start = System.nanoTime();
+        try (Response response = hedged(50).execute()) {
+            assertEquals("fast", response.body().string());
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void primaryWinsBeforeHedgeDelay() throws Exception {
+        server.enqueue(new MockResponse().setBody("primary"));
+        try (Response response = hedged(1000).execute()) {
+            assertEquals("primary", response.body().string());
+        }
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void retryableResponseDoesNotWin() throws Exception {
+        server.enqueue(
+                new MockResponse().setBody("ok").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        try (Response response = hedged(50).execute()) {
+            assertEquals(200, response.code());
+            assertEquals("ok", response.body().string());
+        }
+    }
+
+    @Test
+    public void retryableResponseIsReturnedWhenNothingBetterArrives() throws Exception {
+        server.enqueue(
+                new MockResponse()
+                        .setResponseCode(503)
+                        .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setResponseCode(502));
+        try (Response response = hedged(50).execute()) {
+            assertTrue(response.code() == 502 || response.code() == 503);
+        }
+    }
+
+    @Test
+    public void asyncHedgeWinsOverSlowPrimary() throws Exception {
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(2, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("fast"));
+        CompletableFuture<String> body = new CompletableFuture<>();
+        hedged(50)
+                .enqueue(
+                        new Callback() {
+                            @Override
+                            public void onFailure(Call call, IOException e) {
+                                body.completeExceptionally(e);
+                            }
+
+                            @Override
+                            public void onResponse(Call call, Response response)
+                                    throws IOException {
+                                try (Response r = response) {
+                                    body.complete(r.body().string());
+                                }
+                            }
+                        });
+        assertEquals("fast", body.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void syncPrimaryRunsOnCallerThread() throws Exception {
+        int callers = 3;
+        for (int i = 0; i < callers; i++) {
+            server.enqueue(
+                    new MockResponse().setBody("ok").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        }
+        AbstractHttp single = http(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            Future<?>[] results = new Future<?>[callers];
+            for (int i = 0; i < callers; i++) {
+                results[i] =
+                        executor.submit(
+                                () -> {
+                                    try (Response response = hedged(single, 10_000).execute()) {
+                                        return response.body().string();
+                                    }
+                                });
+            }
+            // OkHttp线程池只有一个名额，同步请求没有占用它，所以三个请求同时到达
+            for (int i = 0; i < callers; i++) {
+                assertNotNull(server.takeRequest(300, TimeUnit.MILLISECONDS));
+            }
+            for (Future<?> result : results) {
+                assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private HedgedCall hedged(long delay) {
+        return hedged(http, delay);
+    }
+
+    private HedgedCall hedged(AbstractHttp http, long delay) {
+        Request request = new Request.Builder().url(server.url("/hedge")).build();
+        return new HedgedCall(http, request, new HedgePolicy(delay, 0, 1, false));
+    }
+
+    private static AbstractHttp http(int maxRequests) {
+        return HttpUtils.getHttp(
+                new BaseOkHttpClientFactory() {
+                    @Override
+                    protected OkHttpClient httpClient() {
+                        Dispatcher dispatcher = new Dispatcher();
+                        dispatcher.setMaxRequests(maxRequests);
+                        dispatcher.setMaxRequestsPerHost(maxRequests);
+                        return new OkHttpClient.Builder().dispatcher(dispatcher).build();
+                    }
+                });
+    }
+}
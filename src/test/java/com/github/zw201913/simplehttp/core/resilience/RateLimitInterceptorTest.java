@@ -0,0 +1,132 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.annotation.RateLimit;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * RateLimitInterceptor的等待逻辑
+ *
+ * @author zouwei
+ */
+public class RateLimitInterceptorTest {
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void waitsWithinBudget() throws Exception {
+        RateLimiters rateLimiters =
+                new RateLimiters(new RateLimitPolicy(10, 1, RateLimit.Mode.BLOCK, 0));
+        OkHttpClient client = client(rateLimiters, 0);
+        server.enqueue(new MockResponse());
+        // 先用掉突发的许可，下一个请求需要等待一个间隔
+        assertEquals(0, rateLimiters.limiter(request()).reserve(0));
+        long start = System.nanoTime();
+        execute(client, request());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void blockRejectsWaitLongerThanCallTimeout() throws Exception {
+        OkHttpClient client = client(new RateLimitPolicy(0.1, 1, RateLimit.Mode.BLOCK, 0), 200);
+        server.enqueue(new MockResponse());
+        execute(client, request());
+        long start = System.nanoTime();
+        try {
+            execute(client, request());
+            fail();
+        } catch (RateLimitExceededException e) {
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void blockRejectsWaitLongerThanDeadline() throws Exception {
+        OkHttpClient client = client(new RateLimitPolicy(0.1, 1, RateLimit.Mode.BLOCK, 0), 0);
+        server.enqueue(new MockResponse());
+        execute(client, request());
+        Request request =
+                request().newBuilder().tag(Deadline.class, Deadline.after(200)).build();
+        try {
+            execute(client, request);
+            fail();
+        } catch (RateLimitExceededException e) {
+            assertEquals(1, server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void cancelStopsWaiting() throws Exception {
+        OkHttpClient client = client(new RateLimitPolicy(0.1, 1, RateLimit.Mode.BLOCK, 0), 0);
+        server.enqueue(new MockResponse());
+        execute(client, request());
+        Call call = client.newCall(request());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Response> waiting = executor.submit(call::execute);
+            TimeUnit.MILLISECONDS.sleep(100);
+            long start = System.nanoTime();
+            call.cancel();
+            try {
+                waiting.get(1, TimeUnit.SECONDS).close();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private OkHttpClient client(RateLimitPolicy policy, long callTimeout) {
+        return client(new RateLimiters(policy), callTimeout);
+    }
+
+    private OkHttpClient client(RateLimiters rateLimiters, long callTimeout) {
+        return new OkHttpClient.Builder()
+                .callTimeout(callTimeout, TimeUnit.MILLISECONDS)
+                .addInterceptor(new RateLimitInterceptor(rateLimiters))
+                .build();
+    }
+
+    private Request request() {
+        return new Request.Builder().url(server.url("/limited")).build();
+    }
+
+    private static void execute(OkHttpClient client, Request request) throws IOException {
+        client.newCall(request).execute().close();
+    }
+}
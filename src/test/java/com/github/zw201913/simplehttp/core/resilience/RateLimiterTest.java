@@ -0,0 +1,115 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import com.github.zw201913.simplehttp.annotation.RateLimit;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RateLimiter的GCRA实现
+ *
+ * @author zouwei
+ */
+public class RateLimiterTest {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void allowsBurstImmediately() {
+        RateLimiter limiter = limiter(10, 5);
+        assertEquals(5, limiter.availablePermits());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.reserve(0));
+        }
+        assertEquals(0, limiter.availablePermits());
+    }
+
+    @Test
+    public void failFastRejectsBeyondBurst() {
+        RateLimiter limiter =
+                new RateLimiter("fail-fast", new RateLimitPolicy(10, 2, RateLimit.Mode.FAIL_FAST, 0));
+        long maxWait = limiter.getPolicy().maxWaitNanos();
+        assertEquals(0, limiter.reserve(maxWait));
+        assertEquals(0, limiter.reserve(maxWait));
+        assertEquals(-1, limiter.reserve(maxWait));
+        // 被拒绝的请求不占用额度
+        assertEquals(-1, limiter.reserve(maxWait));
+    }
+
+    @Test
+    public void waitsGrowByInterval() {
+        RateLimiter limiter = limiter(10, 1);
+        assertEquals(0, limiter.reserve(0));
+        long first = limiter.reserve(Long.MAX_VALUE);
+        long second = limiter.reserve(Long.MAX_VALUE);
+        assertTrue(first > 0 && first <= INTERVAL);
+        assertTrue(second > first);
+        assertTrue(second - first <= INTERVAL + TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(second - first >= INTERVAL - TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    public void rejectsWaitLongerThanTimeout() {
+        RateLimiter limiter = limiter(10, 1);
+        limiter.reserve(0);
+        assertEquals(-1, limiter.reserve(TimeUnit.MILLISECONDS.toNanos(10)));
+        assertTrue(limiter.reserve(INTERVAL) > 0);
+    }
+
+    @Test
+    public void refillsAfterIdle() throws Exception {
+        RateLimiter limiter = limiter(100, 2);
+        limiter.reserve(0);
+        limiter.reserve(0);
+        assertEquals(-1, limiter.reserve(0));
+        TimeUnit.MILLISECONDS.sleep(30);
+        assertEquals(2, limiter.availablePermits());
+        assertEquals(0, limiter.reserve(0));
+    }
+
+    @Test
+    public void concurrentReservationsNeverExceedBurst() throws Exception {
+        int threads = 8;
+        // 十秒一个许可，测试期间不会补充
+        RateLimiter limiter = limiter(0.1, 10);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(
+                        () -> {
+                            try {
+                                start.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return;
+                            }
+                            for (int i = 0; i < 1000; i++) {
+                                if (limiter.reserve(0) == 0) {
+                                    granted.incrementAndGet();
+                                }
+                            }
+                        });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(10, granted.get());
+    }
+
+    private static RateLimiter limiter(double permitsPerSecond, int burst) {
+        return new RateLimiter(
+                "test", new RateLimitPolicy(permitsPerSecond, burst, RateLimit.Mode.QUEUE, 0));
+    }
+}
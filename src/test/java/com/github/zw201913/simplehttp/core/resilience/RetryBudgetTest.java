@@ -0,0 +1,60 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RetryBudget的令牌计算
+ *
+ * @author zouwei
+ */
+public class RetryBudgetTest {
+
+    @Test
+    public void exhaustsAfterMaxTokens() {
+        RetryBudget budget = new RetryBudget(0, 0, 2);
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+        assertEquals(0, budget.available(), 0);
+    }
+
+    @Test
+    public void depositsRatioPerRequest() {
+        RetryBudget budget = new RetryBudget(0.5, 0, 1);
+        assertTrue(budget.tryAcquire());
+        budget.deposit();
+        assertFalse(budget.tryAcquire());
+        budget.deposit();
+        assertTrue(budget.tryAcquire());
+    }
+
+    @Test
+    public void refillsOverTime() throws Exception {
+        RetryBudget budget = new RetryBudget(0, 100, 1);
+        assertTrue(budget.tryAcquire());
+        TimeUnit.MILLISECONDS.sleep(30);
+        assertTrue(budget.tryAcquire());
+    }
+
+    @Test
+    public void largeRefillRateDoesNotOverflow() throws Exception {
+        // 溢出后的结果随间隔时长变化，多换几个间隔
+        for (int round = 0; round < 20; round++) {
+            RetryBudget budget = new RetryBudget(0, Integer.MAX_VALUE, 10);
+            assertTrue(budget.tryAcquire());
+            TimeUnit.MILLISECONDS.sleep(5 + round);
+            assertEquals(10, budget.available(), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidArguments() {
+        new RetryBudget(-1, 0, 1);
+    }
+}
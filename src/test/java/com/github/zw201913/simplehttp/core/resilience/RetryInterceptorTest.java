@@ -0,0 +1,112 @@
+package com.github.zw201913.simplehttp.core.resilience;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * RetryInterceptor的重试次数和重试预算
+ *
+ * @author zouwei
+ */
+public class RetryInterceptorTest {
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void retriesRetryableStatus() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("ok"));
+        OkHttpClient client = client(new RetryBudget(0, 0, 10));
+        try (Response response = client.newCall(request()).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void stopsAtMaxAttempts() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        OkHttpClient client = client(new RetryBudget(0, 0, 10));
+        try (Response response = client.newCall(request()).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void exhaustedBudgetStopsRetrying() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        // 只有一个令牌，没有补充
+        OkHttpClient client = client(new RetryBudget(0, 0, 1));
+        try (Response response = client.newCall(request()).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+        try (Response response = client.newCall(request()).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void nonIdempotentRequestIsNotRetried() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        OkHttpClient client = client(new RetryBudget(0, 0, 10));
+        Request request =
+                request().newBuilder()
+                        .post(RequestBody.create(null, new byte[0]))
+                        .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private OkHttpClient client(RetryBudget budget) {
+        RetryPolicy policy =
+                new RetryPolicy(
+                        3,
+                        0,
+                        0,
+                        1,
+                        0,
+                        new int[] {503},
+                        new Class[] {IOException.class},
+                        false);
+        return new OkHttpClient.Builder()
+                .addInterceptor(new RetryInterceptor(policy, budget))
+                .build();
+    }
+
+    private Request request() {
+        return new Request.Builder().url(server.url("/retry")).build();
+    }
+}